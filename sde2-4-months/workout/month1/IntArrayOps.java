@@ -0,0 +1,144 @@
+import java.util.*;
+import java.util.function.IntPredicate;
+
+// In-place kernels on a slice a[from, to) of an int[]: nothing is boxed, nothing is allocated.
+// Instead of returning a shorter copy, each operation moves the kept elements to the front of the
+// slice and returns the new end index; whatever lies between that index and `to` is leftover.
+//
+//   int end = IntArrayOps.removeAll(a, 0, a.length, 5);   // a[0, end) is the result
+//
+// The compaction loops are written without a branch on the element (the write always happens,
+// only the write index moves conditionally), so the JIT can use a conditional move and random
+// data does not cause branch mispredictions.
+public class IntArrayOps {
+
+    // Removes the first occurrence only (what List.remove(Object) did in W3_T1_P4); returns the new end
+    public static int removeFirst(int[] a, int from, int to, int value) {
+        Objects.checkFromToIndex(from, to, a.length);
+        for (int i = from; i < to; i++) {
+            if (a[i] == value) {
+                System.arraycopy(a, i + 1, a, i, to - i - 1);
+                return to - 1;
+            }
+        }
+        return to;
+    }
+
+    // Removes every occurrence, keeping the order of the rest
+    public static int removeAll(int[] a, int from, int to, int value) {
+        Objects.checkFromToIndex(from, to, a.length);
+        int w = from;
+        for (int r = from; r < to; r++) {
+            int v = a[r];
+            a[w] = v;
+            w += v != value ? 1 : 0;
+        }
+        return w;
+    }
+
+    // Stable: the kept elements stay in their original order
+    public static int removeIf(int[] a, int from, int to, IntPredicate filter) {
+        Objects.checkFromToIndex(from, to, a.length);
+        int w = from;
+        for (int r = from; r < to; r++) {
+            int v = a[r];
+            a[w] = v;
+            w += filter.test(v) ? 0 : 1;
+        }
+        return w;
+    }
+
+    // Stable filter into a caller-owned buffer (may be the source array itself with dstFrom <= from);
+    // returns the number of elements written
+    public static int filter(int[] src, int from, int to, IntPredicate keep, int[] dst, int dstFrom) {
+        Objects.checkFromToIndex(from, to, src.length);
+        int w = dstFrom;
+        for (int r = from; r < to; r++) {
+            int v = src[r];
+            if (keep.test(v)) dst[w++] = v;
+        }
+        return w - dstFrom;
+    }
+
+    // Collapses runs of equal values in a sorted slice; returns the new end
+    public static int dedupSorted(int[] a, int from, int to) {
+        Objects.checkFromToIndex(from, to, a.length);
+        if (to - from < 2) return to;
+        int w = from + 1;
+        for (int r = from + 1; r < to; r++) {
+            int v = a[r];
+            a[w] = v;
+            w += v != a[w - 1] ? 1 : 0;
+        }
+        return w;
+    }
+
+    // Moves the elements matching the predicate to the front (not stable, one pass, swaps only);
+    // returns the index of the first element that does not match
+    public static int partition(int[] a, int from, int to, IntPredicate predicate) {
+        Objects.checkFromToIndex(from, to, a.length);
+        int lo = from;
+        int hi = to - 1;
+        while (true) {
+            while (lo <= hi && predicate.test(a[lo])) lo++;
+            while (lo <= hi && !predicate.test(a[hi])) hi--;
+            if (lo >= hi) return lo;
+            int t = a[lo];
+            a[lo++] = a[hi];
+            a[hi--] = t;
+        }
+    }
+
+    // Old W3_T1_P4 approach with branches, for the benchmark
+    static int removeAllBranching(int[] a, int from, int to, int value) {
+        int w = from;
+        for (int r = from; r < to; r++) {
+            if (a[r] != value) a[w++] = a[r];
+        }
+        return w;
+    }
+
+    static volatile int sink;
+
+    public static void main(String[] args) {
+        int[] nums = {1, 2, 2, 3, 5, 5, 5, 7, 8, 8};
+        int[] work = nums.clone();
+        int end = removeAll(work, 0, work.length, 5);
+        System.out.println("removeAll 5     : " + Arrays.toString(Arrays.copyOf(work, end)));
+        work = nums.clone();
+        end = dedupSorted(work, 0, work.length);
+        System.out.println("dedupSorted     : " + Arrays.toString(Arrays.copyOf(work, end)));
+        work = nums.clone();
+        end = removeIf(work, 0, work.length, x -> x % 2 == 0);
+        System.out.println("removeIf even   : " + Arrays.toString(Arrays.copyOf(work, end)));
+        work = nums.clone();
+        end = partition(work, 0, work.length, x -> x > 4);
+        System.out.println("partition x > 4 : " + Arrays.toString(work) + " split at " + end);
+
+        // random data: half the elements are removed, so a branch would be mispredicted often
+        int n = 10_000_000;
+        int[] source = new Random(3).ints(n, 0, 2).toArray();
+        int[] data = new int[n];
+        for (int round = 0; round < 5; round++) {
+            System.arraycopy(source, 0, data, 0, n);
+            long start = System.nanoTime();
+            sink = removeAllBranching(data, 0, n, 1);
+            long branching = System.nanoTime() - start;
+
+            System.arraycopy(source, 0, data, 0, n);
+            start = System.nanoTime();
+            sink = removeAll(data, 0, n, 1);
+            long branchFree = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<Integer> boxed = new ArrayList<>(n);
+            for (int v : source) boxed.add(v);
+            boxed.removeIf(v -> v == 1);
+            sink = boxed.stream().mapToInt(Integer::intValue).toArray().length;
+            long boxedNanos = System.nanoTime() - start;
+
+            System.out.printf("removeAll on %,d ints: boxed list %.1f ms | branching %.1f ms | branch-free %.1f ms%n",
+                    n, boxedNanos / 1e6, branching / 1e6, branchFree / 1e6);
+        }
+    }
+}
@@ -1,16 +1,24 @@
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class W3_T1_P4 {
 
+    // Removes the first occurrence of toRemove: one copy into an array one shorter,
+    // instead of boxing every element into a List<Integer> and unboxing them back
     public static int[] removeElement(int[] nums, int toRemove){
-        List<Integer> array = Arrays.stream(nums)   // IntStream
-                           .boxed()        // convert int -> Integer
-                           .collect(Collectors.toList());
-
-        array.remove((Integer) toRemove);
+        for(int i=0;i<nums.length;i++){
+            if(nums[i]==toRemove){
+                int[] result = new int[nums.length-1];
+                System.arraycopy(nums, 0, result, 0, i);
+                System.arraycopy(nums, i+1, result, i, nums.length-i-1);
+                return result;
+            }
+        }
+        return nums.clone();
+    }
 
-        return array.stream().mapToInt(Integer::intValue).toArray();
+    // No allocation at all: removes every occurrence in place and returns the new length
+    public static int removeElementInPlace(int[] nums, int toRemove){
+        return IntArrayOps.removeAll(nums, 0, nums.length, toRemove);
     }
 
 
@@ -23,6 +31,9 @@ public class W3_T1_P4 {
 
         System.out.println(Arrays.toString(removeElement(nums,toRemove)));
 
+        int length = removeElementInPlace(nums,toRemove);
+        System.out.println(Arrays.toString(Arrays.copyOf(nums,length)));
+
     }
     
 }   
@@ -0,0 +1,246 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Picks how many threads and how big a chunk to use for a parallel pass over an array,
+// instead of a fixed nThreads = 5 with equal partitions (W5_T2_P1).
+//
+//  - parallelism : never more than the cores, and only as many threads as the work can pay for
+//  - chunk size  : big enough that a chunk costs much more than handing it to a thread,
+//                  small enough that there are several chunks per thread to balance skew
+//  - both are based on a one-off calibration: ns per element and ns per task hand-off
+//
+// Workers do not get fixed ranges. They claim the next chunk from a shared atomic cursor
+// until the array is exhausted, so a thread that hits cheap elements simply takes more chunks.
+public class AdaptivePartitioner {
+
+    record Plan(int length, int parallelism, int chunkSize) {
+        int chunks() {
+            return length == 0 ? 0 : (length + chunkSize - 1) / chunkSize;
+        }
+
+        boolean sequential() {
+            return parallelism == 1;
+        }
+    }
+
+    // Work on [from, to) and return a partial result
+    @FunctionalInterface
+    interface LongRangeFunction {
+        long apply(int from, int to);
+    }
+
+    // a chunk should cost at least this many hand-offs, so scheduling stays below ~2% of the work
+    private static final int CHUNK_COST_FACTOR = 50;
+    // chunks per thread, so a slow chunk can be absorbed by the others
+    private static final int CHUNKS_PER_THREAD = 8;
+
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+    // marks POOL's threads, so sum() called from inside a chunk runs inline instead of blocking
+    // a worker on helpers that may never get a free worker
+    private static final class Worker extends Thread {
+        Worker(Runnable r) {
+            super(r, "adaptive-worker");
+            setDaemon(true);
+        }
+    }
+
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(CORES, Worker::new);
+
+    private static volatile double nanosPerElement = -1;
+    private static volatile double nanosPerHandOff = -1;
+    private static volatile long calibrationSink;
+
+    // Measures the two costs the plan depends on; done once, lazily (~a few ms)
+    static synchronized void calibrate() {
+        if (nanosPerElement > 0) return;
+
+        int[] sample = new int[1 << 16];
+        Arrays.fill(sample, 1);
+        long best = Long.MAX_VALUE;
+        // enough rounds for the JIT to compile sampleSum, keep the fastest
+        for (int round = 0; round < 300; round++) {
+            long start = System.nanoTime();
+            calibrationSink += sampleSum(sample);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        // on a throwaway pool of the same kind: waiting on POOL here could deadlock when the
+        // first plan() happens inside a POOL task
+        long bestHandOff = Long.MAX_VALUE;
+        ExecutorService probe = Executors.newSingleThreadExecutor(Worker::new);
+        try {
+            for (int round = 0; round < 50; round++) {
+                long start = System.nanoTime();
+                probe.submit(() -> {}).get();
+                bestHandOff = Math.min(bestHandOff, System.nanoTime() - start);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            probe.shutdown();
+        }
+
+        nanosPerHandOff = Math.max(1_000, bestHandOff);
+        nanosPerElement = Math.max(0.05, (double) best / sample.length);
+    }
+
+    private static long sampleSum(int[] sample) {
+        long s = 0;
+        for (int v : sample) s += v;
+        return s;
+    }
+
+    // Plan for a pass whose per-element cost is about weight x a plain int sum
+    static Plan plan(int length, double weight) {
+        calibrate();
+        double elementCost = nanosPerElement * Math.max(weight, 1e-3);
+        int minChunk = (int) Math.min(Integer.MAX_VALUE, Math.ceil(CHUNK_COST_FACTOR * nanosPerHandOff / elementCost));
+
+        int parallelism = Math.max(1, Math.min(CORES, length / Math.max(minChunk, 1)));
+        if (parallelism == 1) {
+            return new Plan(length, 1, Math.max(length, 1));
+        }
+        int chunkSize = Math.max(minChunk, length / (parallelism * CHUNKS_PER_THREAD));
+        return new Plan(length, parallelism, chunkSize);
+    }
+
+    static Plan plan(int length) {
+        return plan(length, 1.0);
+    }
+
+    // Runs fn over [0, length) using the plan and adds up the partial results.
+    // Nested calls (fn itself calling sum) run sequentially on the calling worker.
+    static long sum(Plan plan, LongRangeFunction fn) {
+        if (plan.sequential() || Thread.currentThread() instanceof Worker) {
+            return fn.apply(0, plan.length());
+        }
+
+        // long cursor : threads overshoot the end by up to one chunk each, which could overflow an int
+        AtomicLong cursor = new AtomicLong();
+        Callable<Long> worker = () -> {
+            long local = 0;
+            long from;
+            while ((from = cursor.getAndAdd(plan.chunkSize())) < plan.length()) {
+                local += fn.apply((int) from, (int) Math.min(plan.length(), from + plan.chunkSize()));
+            }
+            return local;
+        };
+
+        List<Future<Long>> helpers = new ArrayList<>();
+        for (int i = 1; i < plan.parallelism(); i++) {
+            helpers.add(POOL.submit(worker));
+        }
+
+        try {
+            long total = worker.call(); // the caller claims chunks too
+            for (Future<Long> f : helpers) {
+                total += f.get();
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for chunks");
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        } finally {
+            // after a failure or interrupt the result is discarded: stop the helpers claiming chunks
+            // (a no-op when every helper has already returned)
+            cursor.set(plan.length());
+            for (Future<Long> f : helpers) {
+                f.cancel(true);
+            }
+        }
+    }
+
+    static long sum(int[] arr) {
+        return sum(plan(arr.length), (from, to) -> {
+            long s = 0;
+            for (int i = from; i < to; i++) s += arr[i];
+            return s;
+        });
+    }
+
+    static long equalPartitionSum(int[] arr, int nThreads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        int size = arr.length / nThreads;
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int i = 0; i < nThreads; i++) {
+            int start = i * size;
+            int end = (i == nThreads - 1) ? arr.length : start + size;
+            futures.add(executor.submit(() -> {
+                long s = 0;
+                for (int j = start; j < end; j++) s += arr[j];
+                return s;
+            }));
+        }
+        long total = 0;
+        for (var f : futures) total += f.get();
+        executor.shutdown();
+        return total;
+    }
+
+    public static void main(String[] args) throws Exception {
+        calibrate();
+        System.out.printf("cores=%d, %.2f ns/element, %.0f ns/hand-off%n", CORES, nanosPerElement, nanosPerHandOff);
+
+        for (int n : new int[] { 100, 10_000, 1_000_000, 50_000_000 }) {
+            int[] arr = new int[n];
+            for (int i = 0; i < n; i++) arr[i] = i + 1;
+
+            Plan plan = plan(n);
+            for (int warmup = 0; warmup < 5; warmup++) {
+                sum(arr);
+                equalPartitionSum(arr, 5);
+            }
+            long start = System.nanoTime();
+            long adaptive = sum(arr);
+            long adaptiveNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            long fixed = equalPartitionSum(arr, 5);
+            long fixedNanos = System.nanoTime() - start;
+
+            System.out.printf("n=%,d %s -> adaptive %.3f ms, fixed 5 threads %.3f ms (sums equal: %b)%n",
+                    n, plan, adaptiveNanos / 1e6, fixedNanos / 1e6, adaptive == fixed);
+        }
+
+        // skewed work : the last 10% of elements are 50x more expensive
+        int n = 2_000_000;
+        int heavyFrom = n - n / 10;
+        Plan plan = plan(n, 5);
+        long start = System.nanoTime();
+        long skewed = sum(plan, (from, to) -> {
+            long s = 0;
+            for (int i = from; i < to; i++) {
+                int reps = i >= heavyFrom ? 50 : 1;
+                for (int r = 0; r < reps; r++) s += (i ^ r) & 1;
+            }
+            return s;
+        });
+        System.out.printf("skewed %s -> %.3f ms (result %d)%n", plan, (System.nanoTime() - start) / 1e6, skewed);
+
+        // nested : every chunk sums a row with sum() again; the inner calls run inline on the workers
+        int[] row = new int[4_000_000];
+        Arrays.fill(row, 1);
+        Plan outer = new Plan(8, CORES, 1);
+        Plan inner = new Plan(row.length, CORES, row.length / (CORES * CHUNKS_PER_THREAD));
+        long nested = sum(outer, (from, to) -> {
+            long s = 0;
+            for (int i = from; i < to; i++) {
+                s += sum(inner, (a, b) -> {
+                    long r = 0;
+                    for (int j = a; j < b; j++) r += row[j];
+                    return r;
+                });
+            }
+            return s;
+        });
+        System.out.println("nested " + outer + " over " + inner + " -> " + nested
+                + " (expected " + 8L * row.length + ")");
+    }
+}
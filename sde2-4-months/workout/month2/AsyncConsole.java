@@ -0,0 +1,161 @@
+import java.io.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+
+// Drop-in for per-element System.out.println in hot loops.
+//
+// System.out is a synchronized, autoflushing PrintStream: every println takes a lock and makes a
+// write() system call, and threads printing at the same time queue up behind each other.
+// Here every thread appends to its own buffer (an uncontended lock, no syscall), and one daemon
+// writer thread drains all buffers every flush interval -- sooner when a buffer fills up -- and
+// writes them to System.out in big blocks (whatever System.out is at that moment, so System.setOut
+// redirection applies; each block is one locked write on it, so it never splits other prints).
+//
+// Lines from one thread keep their order. Lines from different threads are interleaved per batch,
+// not per line. Lines still pending are not ordered with direct System.out / System.err prints:
+// call flush() before printing directly. flush() (also run at JVM shutdown) writes everything
+// out synchronously.
+public class AsyncConsole {
+
+    private static final class ThreadBuffer {
+        final Thread owner = Thread.currentThread();
+        final StringBuilder text = new StringBuilder(1 << 12);
+    }
+
+    // wake the writer early once a thread has this much text pending
+    static final int BATCH_CHARS = 64 * 1024;
+    // a thread that gets this far ahead of the writer waits for it (back-pressure)
+    static final int MAX_PENDING_CHARS = 1 << 20;
+
+    private static volatile long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(
+            Long.getLong("asyncconsole.flushMillis", 50));
+
+    private static final Object DRAIN_LOCK = new Object();
+    private static final Set<ThreadBuffer> BUFFERS = ConcurrentHashMap.newKeySet();
+    private static final ThreadLocal<ThreadBuffer> LOCAL = ThreadLocal.withInitial(() -> {
+        ThreadBuffer buffer = new ThreadBuffer();
+        BUFFERS.add(buffer);
+        return buffer;
+    });
+
+    private static final Thread WRITER = new Thread(AsyncConsole::writerLoop, "async-console-writer");
+    static {
+        WRITER.setDaemon(true);
+        WRITER.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(AsyncConsole::flush, "async-console-shutdown"));
+    }
+
+    static void setFlushInterval(Duration interval) {
+        flushIntervalNanos = interval.toNanos();
+        LockSupport.unpark(WRITER);
+    }
+
+    static void println(String line) {
+        ThreadBuffer buffer = LOCAL.get();
+        int pending;
+        synchronized (buffer) {
+            buffer.text.append(line).append(System.lineSeparator());
+            pending = buffer.text.length();
+        }
+        if (pending >= BATCH_CHARS) {
+            LockSupport.unpark(WRITER);
+            while (pending >= MAX_PENDING_CHARS) {
+                LockSupport.parkNanos(100_000);
+                synchronized (buffer) {
+                    pending = buffer.text.length();
+                }
+            }
+        }
+    }
+
+    static void println(Object value) {
+        println(String.valueOf(value));
+    }
+
+    static void println(long value) {
+        println(Long.toString(value));
+    }
+
+    static void print(String text) {
+        ThreadBuffer buffer = LOCAL.get();
+        synchronized (buffer) {
+            buffer.text.append(text);
+        }
+    }
+
+    // Writes everything appended so far (by any thread) before returning
+    static void flush() {
+        drainAll();
+    }
+
+    private static void writerLoop() {
+        while (true) {
+            LockSupport.parkNanos(flushIntervalNanos);
+            drainAll();
+        }
+    }
+
+    // Only one drainer at a time, so each thread's batches reach stdout in the order they were taken
+    private static void drainAll() {
+        synchronized (DRAIN_LOCK) {
+            try {
+                PrintStream out = System.out;
+                ByteArrayOutputStream block = new ByteArrayOutputStream();
+                for (Iterator<ThreadBuffer> it = BUFFERS.iterator(); it.hasNext();) {
+                    ThreadBuffer buffer = it.next();
+                    String batch;
+                    synchronized (buffer) {
+                        if (buffer.text.length() == 0) {
+                            if (!buffer.owner.isAlive()) it.remove();
+                            continue;
+                        }
+                        batch = buffer.text.toString();
+                        buffer.text.setLength(0);
+                    }
+                    block.write(batch.getBytes(out.charset()));
+                }
+                if (block.size() > 0) {
+                    block.writeTo(out); // PrintStream.write(byte[], int, int): one synchronized write
+                    out.flush();
+                    if (out.checkError()) System.err.println("AsyncConsole write failed");
+                }
+            } catch (IOException e) {
+                System.err.println("AsyncConsole write failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // usage: java AsyncConsole > /dev/null   (timings go to stderr)
+    public static void main(String[] args) throws Exception {
+        int threads = 4;
+        int linesPerThread = 250_000;
+
+        for (int round = 0; round < 3; round++) {
+            long println = runThreads(threads, linesPerThread, i -> System.out.println("node " + i + " visited"));
+            long async = runThreads(threads, linesPerThread, i -> AsyncConsole.println("node " + i + " visited"));
+            long start = System.nanoTime();
+            flush();
+            async += System.nanoTime() - start;
+            System.out.flush();
+            System.err.printf("%d threads x %,d lines : System.out.println %.1f ms, AsyncConsole %.1f ms (incl. final flush)%n",
+                    threads, linesPerThread, println / 1e6, async / 1e6);
+        }
+    }
+
+    private static long runThreads(int threads, int lines, IntConsumer printer)
+            throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < lines; i++) printer.accept(i);
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) w.join();
+        return System.nanoTime() - start;
+    }
+}
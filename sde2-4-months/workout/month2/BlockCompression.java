@@ -0,0 +1,691 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+// Streaming compression for copies and serialized catalogs: wrap any OutputStream/InputStream
+// (e.g. new ObjectOutputStream(BlockCompression.compress(out, Codec.LZ)) in W6_T2_P1).
+//
+// Data is cut into fixed-size blocks that are compressed independently, several at a time on the
+// common fork/join pool, and written in order. Because no block depends on another, any block
+// can be decompressed on its own: BlockFile uses the index at the end of the file for random
+// access and parallel decompression. Only the last block may be short, so block i always starts
+// at raw offset i * blockSize; flush() therefore never cuts a partial block.
+//
+// Frame layout (big-endian):
+//   header : magic "PBLK" | version (byte) | codec id (byte) | block size (int)
+//   block  : method (byte, 0 = stored) | raw length (int) | payload length (int) | crc32c of raw (int) | payload
+//   end    : method 0xFF
+//   index  : block count (int) | file offset of every block (long...) | index offset (long) | magic
+public class BlockCompression {
+
+    static final int MAGIC = 0x50424C4B; // "PBLK"
+    static final int VERSION = 1;
+    static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+    static final int MAX_BLOCK_SIZE = 1 << 30; // keeps maxCompressedLength(blockSize) inside an int
+    static final int STORED = 0;
+    static final int END = 0xFF;
+    static final int BLOCK_HEADER_BYTES = 13;
+
+    interface Codec {
+        Codec DEFLATE = new DeflateCodec(Deflater.BEST_SPEED);
+        Codec LZ = new LzCodec();
+
+        byte id();
+
+        // upper bound for the dst array passed to compress
+        int maxCompressedLength(int length);
+
+        // returns the compressed length, or -1 if the block does not get smaller
+        int compress(byte[] src, int length, byte[] dst);
+
+        void decompress(byte[] src, int srcLength, byte[] dst, int dstLength) throws IOException;
+    }
+
+    static Codec codec(int id) throws IOException {
+        return switch (id) {
+            case 1 -> Codec.DEFLATE;
+            case 2 -> Codec.LZ;
+            default -> throw new IOException("Unknown codec id " + id);
+        };
+    }
+
+    // java.util.zip, raw deflate (the frame has its own checksum)
+    record DeflateCodec(int level) implements Codec {
+        public byte id() {
+            return 1;
+        }
+
+        public int maxCompressedLength(int length) {
+            return length;
+        }
+
+        public int compress(byte[] src, int length, byte[] dst) {
+            Deflater deflater = new Deflater(level, true);
+            try {
+                deflater.setInput(src, 0, length);
+                deflater.finish();
+                int n = deflater.deflate(dst, 0, length);
+                return deflater.finished() && n < length ? n : -1;
+            } finally {
+                deflater.end();
+            }
+        }
+
+        public void decompress(byte[] src, int srcLength, byte[] dst, int dstLength) throws IOException {
+            Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(src, 0, srcLength);
+                int n = inflater.inflate(dst, 0, dstLength);
+                if (n != dstLength) throw new IOException("Corrupt deflate block");
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt deflate block", e);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    // LZ77 in the LZ4 style: sequences of  token | literals | 2-byte offset | extra match length.
+    // The token's high nibble is the literal count, the low nibble the match length - 4; 15 means
+    // "more length bytes follow" (255 = keep adding). The last sequence is literals only.
+    // One hash probe per position and no entropy coding: much faster than deflate, lower ratio.
+    static final class LzCodec implements Codec {
+        static final int HASH_BITS = 14;
+        static final int MIN_MATCH = 4;
+        static final int MAX_OFFSET = 65535;
+        static final int LAST_LITERALS = 5;
+        static final ThreadLocal<int[]> TABLE = ThreadLocal.withInitial(() -> new int[1 << HASH_BITS]);
+
+        public byte id() {
+            return 2;
+        }
+
+        public int maxCompressedLength(int length) {
+            return length + length / 255 + 16;
+        }
+
+        public int compress(byte[] src, int length, byte[] dst) {
+            int[] table = TABLE.get();
+            Arrays.fill(table, -1);
+            int anchor = 0;
+            int d = 0;
+            int i = 0;
+            int limit = length - LAST_LITERALS - MIN_MATCH;
+            int misses = 0;
+            while (i < limit) {
+                int sequence = readInt(src, i);
+                int h = (sequence * 0x9E3779B1) >>> (32 - HASH_BITS);
+                int ref = table[h];
+                table[h] = i;
+                if (ref < 0 || i - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                    // skip faster through data that does not compress
+                    i += 1 + (misses++ >>> 6);
+                    continue;
+                }
+                misses = 0;
+                int matchLength = MIN_MATCH;
+                int matchLimit = length - LAST_LITERALS;
+                while (i + matchLength < matchLimit && src[ref + matchLength] == src[i + matchLength]) {
+                    matchLength++;
+                }
+                d = writeSequence(src, anchor, i - anchor, dst, d, i - ref, matchLength - MIN_MATCH);
+                i += matchLength;
+                anchor = i;
+            }
+            d = writeSequence(src, anchor, length - anchor, dst, d, 0, -1);
+            return d < length ? d : -1;
+        }
+
+        private static int writeSequence(byte[] src, int literalStart, int literals, byte[] dst, int d,
+                int offset, int extraMatch) {
+            int tokenPos = d++;
+            int token = Math.min(literals, 15) << 4;
+            if (literals >= 15) d = writeLength(dst, d, literals - 15);
+            System.arraycopy(src, literalStart, dst, d, literals);
+            d += literals;
+            if (extraMatch >= 0) {
+                dst[d++] = (byte) offset;
+                dst[d++] = (byte) (offset >>> 8);
+                token |= Math.min(extraMatch, 15);
+                if (extraMatch >= 15) d = writeLength(dst, d, extraMatch - 15);
+            }
+            dst[tokenPos] = (byte) token;
+            return d;
+        }
+
+        private static int writeLength(byte[] dst, int d, int remaining) {
+            while (remaining >= 255) {
+                dst[d++] = (byte) 255;
+                remaining -= 255;
+            }
+            dst[d++] = (byte) remaining;
+            return d;
+        }
+
+        public void decompress(byte[] src, int srcLength, byte[] dst, int dstLength) throws IOException {
+            int s = 0;
+            int d = 0;
+            try {
+                while (true) {
+                    int token = src[s++] & 0xFF;
+                    int literals = token >>> 4;
+                    if (literals == 15) {
+                        int b;
+                        do {
+                            b = src[s++] & 0xFF;
+                            literals += b;
+                        } while (b == 255);
+                    }
+                    System.arraycopy(src, s, dst, d, literals);
+                    s += literals;
+                    d += literals;
+                    if (s >= srcLength) break;
+
+                    int offset = (src[s] & 0xFF) | (src[s + 1] & 0xFF) << 8;
+                    s += 2;
+                    int matchLength = token & 15;
+                    if (matchLength == 15) {
+                        int b;
+                        do {
+                            b = src[s++] & 0xFF;
+                            matchLength += b;
+                        } while (b == 255);
+                    }
+                    matchLength += MIN_MATCH;
+                    int ref = d - offset;
+                    if (offset == 0 || ref < 0) throw new IOException("Corrupt LZ block: bad offset " + offset);
+                    if (offset >= matchLength) {
+                        System.arraycopy(dst, ref, dst, d, matchLength);
+                        d += matchLength;
+                    } else {
+                        // overlapping copy repeats the last `offset` bytes
+                        for (int k = 0; k < matchLength; k++) dst[d++] = dst[ref + k];
+                    }
+                }
+            } catch (IndexOutOfBoundsException e) {
+                throw new IOException("Corrupt LZ block", e);
+            }
+            if (d != dstLength) throw new IOException("Corrupt LZ block: " + d + " bytes, expected " + dstLength);
+        }
+
+        private static int readInt(byte[] b, int i) {
+            return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | (b[i + 3] & 0xFF) << 24;
+        }
+    }
+
+    // One block ready to be written: header fields plus the payload
+    private record Frame(int method, int rawLength, int crc, byte[] payload, int payloadLength) {}
+
+    private static Frame encode(Codec codec, byte[] raw, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(raw, 0, length);
+        byte[] out = new byte[codec.maxCompressedLength(length)];
+        int n = codec.compress(raw, length, out);
+        return n < 0
+                ? new Frame(STORED, length, (int) crc.getValue(), raw, length)
+                : new Frame(codec.id(), length, (int) crc.getValue(), out, n);
+    }
+
+    // A reader trusts no length from the file: the block size bounds every array it allocates
+    private static int checkBlockSize(int blockSize) throws IOException {
+        if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE) throw new IOException("Corrupt block size " + blockSize);
+        return blockSize;
+    }
+
+    private static void checkFrame(Codec codec, int blockSize, int method, int rawLength, int payloadLength)
+            throws IOException {
+        if (method != STORED && method != codec.id()) {
+            throw new IOException("Block method " + method + " in a stream of codec " + codec.id());
+        }
+        if (rawLength <= 0 || rawLength > blockSize) {
+            throw new IOException("Block holds " + rawLength + " bytes, block size is " + blockSize);
+        }
+        if (payloadLength < 0 || payloadLength > codec.maxCompressedLength(blockSize)) {
+            throw new IOException("Block payload of " + payloadLength + " bytes, at most "
+                    + codec.maxCompressedLength(blockSize) + " expected");
+        }
+    }
+
+    private static byte[] decode(Frame frame) throws IOException {
+        byte[] raw;
+        if (frame.method == STORED) {
+            if (frame.rawLength != frame.payloadLength) {
+                throw new IOException("Stored block of " + frame.rawLength + " bytes has a "
+                        + frame.payloadLength + "-byte payload");
+            }
+            raw = frame.payload;
+        } else {
+            raw = new byte[frame.rawLength];
+            codec(frame.method).decompress(frame.payload, frame.payloadLength, raw, frame.rawLength);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(raw, 0, frame.rawLength);
+        if ((int) crc.getValue() != frame.crc) throw new IOException("Block checksum mismatch");
+        return raw;
+    }
+
+    private static <T> T join(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException u) throw u.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    static OutputStream compress(OutputStream out, Codec codec) throws IOException {
+        return new CompressingOutputStream(out, codec, DEFAULT_BLOCK_SIZE, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    static InputStream decompress(InputStream in) throws IOException {
+        return new DecompressingInputStream(in, ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    static final class CompressingOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final Codec codec;
+        private final int blockSize;
+        private final int window;
+        private final ArrayDeque<Future<Frame>> inFlight = new ArrayDeque<>();
+        private final List<Long> offsets = new ArrayList<>();
+        private byte[] block;
+        private int filled;
+        private long position;
+        private boolean closed;
+
+        // parallelism 1 compresses on the calling thread
+        CompressingOutputStream(OutputStream out, Codec codec, int blockSize, int parallelism) throws IOException {
+            if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE) {
+                throw new IllegalArgumentException("Block size must be in 1.." + MAX_BLOCK_SIZE + ": " + blockSize);
+            }
+            this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+            this.codec = codec;
+            this.blockSize = blockSize;
+            this.window = parallelism <= 1 ? 0 : parallelism * 2;
+            this.block = new byte[blockSize];
+            this.out.writeInt(MAGIC);
+            this.out.writeByte(VERSION);
+            this.out.writeByte(codec.id());
+            this.out.writeInt(blockSize);
+            position = 10;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            block[filled++] = (byte) b;
+            if (filled == blockSize) submit();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, blockSize - filled);
+                System.arraycopy(b, off, block, filled, n);
+                filled += n;
+                off += n;
+                len -= n;
+                if (filled == blockSize) submit();
+            }
+        }
+
+        private void submit() throws IOException {
+            if (filled == 0) return;
+            byte[] raw = block;
+            int length = filled;
+            block = new byte[blockSize];
+            filled = 0;
+            if (window == 0) {
+                writeFrame(encode(codec, raw, length));
+                return;
+            }
+            inFlight.add(ForkJoinPool.commonPool().submit(() -> encode(codec, raw, length)));
+            while (inFlight.size() >= window) {
+                writeFrame(join(inFlight.poll()));
+            }
+        }
+
+        private void writeFrame(Frame frame) throws IOException {
+            offsets.add(position);
+            out.writeByte(frame.method);
+            out.writeInt(frame.rawLength);
+            out.writeInt(frame.payloadLength);
+            out.writeInt(frame.crc);
+            out.write(frame.payload, 0, frame.payloadLength);
+            position += BLOCK_HEADER_BYTES + frame.payloadLength;
+        }
+
+        // Writes out every completed block. The partial block stays buffered until it fills up or
+        // the stream is closed, so every block but the last keeps the full block size.
+        @Override
+        public void flush() throws IOException {
+            while (!inFlight.isEmpty()) writeFrame(join(inFlight.poll()));
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                submit();
+                flush();
+                out.writeByte(END);
+                long indexOffset = position + 1;
+                out.writeInt(offsets.size());
+                for (long offset : offsets) out.writeLong(offset);
+                out.writeLong(indexOffset);
+                out.writeInt(MAGIC);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    static final class DecompressingInputStream extends InputStream {
+        private final DataInputStream in;
+        private final Codec codec;
+        private final int blockSize;
+        private final int window;
+        private final ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+        private byte[] current = new byte[0];
+        private int currentLength;
+        private int pos;
+        private boolean end;
+
+        DecompressingInputStream(InputStream in, int parallelism) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+            this.window = parallelism <= 1 ? 1 : parallelism * 2;
+            if (this.in.readInt() != MAGIC) throw new IOException("Not a block-compressed stream");
+            int version = this.in.readUnsignedByte();
+            if (version != VERSION) throw new IOException("Unsupported block stream version " + version);
+            this.codec = codec(this.in.readUnsignedByte()); // fails early on an unknown codec
+            this.blockSize = checkBlockSize(this.in.readInt());
+        }
+
+        private Frame readFrame() throws IOException {
+            int method = in.readUnsignedByte();
+            if (method == END) return null;
+            int rawLength = in.readInt();
+            int payloadLength = in.readInt();
+            int crc = in.readInt();
+            checkFrame(codec, blockSize, method, rawLength, payloadLength);
+            byte[] payload = in.readNBytes(payloadLength);
+            if (payload.length != payloadLength) throw new EOFException("Block stream is truncated");
+            return new Frame(method, rawLength, crc, payload, payloadLength);
+        }
+
+        // keeps up to `window` blocks decompressing ahead of the reader
+        private boolean nextBlock() throws IOException {
+            while (!end && inFlight.size() < window) {
+                Frame frame = readFrame();
+                if (frame == null) {
+                    end = true;
+                } else if (window == 1) {
+                    inFlight.add(CompletableFuture.completedFuture(decode(frame)));
+                } else {
+                    inFlight.add(ForkJoinPool.commonPool().submit(() -> {
+                        try {
+                            return decode(frame);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+                }
+            }
+            Future<byte[]> next = inFlight.poll();
+            if (next == null) return false;
+            current = join(next);
+            currentLength = current.length;
+            pos = 0;
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos == currentLength && !nextBlock()) return -1;
+            return current[pos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (pos == currentLength && !nextBlock()) return -1;
+            int n = Math.min(len, currentLength - pos);
+            System.arraycopy(current, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (Future<byte[]> f : inFlight) f.cancel(false);
+            in.close();
+        }
+    }
+
+    // Random access to a compressed file through its block index
+    static final class BlockFile implements Closeable {
+        private final FileChannel channel;
+        private final Codec codec;
+        private final int blockSize;
+        private final long[] offsets;
+        private final long end; // file offset of the END marker, where the last block's payload stops
+        private final long rawSize;
+
+        BlockFile(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                long size = channel.size();
+                // header, END marker, block count and footer
+                if (size < 10 + 1 + 4 + 12) throw new IOException("Not a block-compressed file");
+                ByteBuffer header = readFully(0, 10);
+                if (header.getInt() != MAGIC) throw new IOException("Not a block-compressed file");
+                int version = header.get() & 0xFF;
+                if (version != VERSION) throw new IOException("Unsupported block file version " + version);
+                codec = codec(header.get() & 0xFF);
+                blockSize = checkBlockSize(header.getInt());
+
+                ByteBuffer footer = readFully(size - 12, 12);
+                long indexOffset = footer.getLong();
+                if (footer.getInt() != MAGIC) throw new IOException("Block index missing (file not closed?)");
+                if (indexOffset < 11 || indexOffset > size - 12 - 4) {
+                    throw new IOException("Block index offset " + indexOffset + " outside the file");
+                }
+                end = indexOffset - 1;
+                ByteBuffer index = readFully(indexOffset, (int) (size - 12 - indexOffset));
+                int count = index.getInt();
+                if (count < 0 || index.remaining() != 8L * count) {
+                    throw new IOException("Block index of " + index.limit() + " bytes can not hold " + count + " blocks");
+                }
+                offsets = new long[count];
+                long previous = 10 - BLOCK_HEADER_BYTES;
+                for (int i = 0; i < count; i++) {
+                    offsets[i] = index.getLong();
+                    // blocks are back to back, each at least a header long, and all before END
+                    if (offsets[i] < previous + BLOCK_HEADER_BYTES || offsets[i] > end - BLOCK_HEADER_BYTES) {
+                        throw new IOException("Block " + i + " offset " + offsets[i] + " outside the data");
+                    }
+                    previous = offsets[i];
+                }
+
+                long last = 0;
+                if (count > 0) {
+                    last = readFully(offsets[count - 1], BLOCK_HEADER_BYTES).getInt(1);
+                    if (last <= 0 || last > blockSize) {
+                        throw new IOException("Last block holds " + last + " bytes, block size is " + blockSize);
+                    }
+                }
+                rawSize = count == 0 ? 0 : (long) (count - 1) * blockSize + last;
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        int blockCount() {
+            return offsets.length;
+        }
+
+        long rawSize() {
+            return rawSize;
+        }
+
+        byte[] readBlock(int i) throws IOException {
+            ByteBuffer header = readFully(offsets[i], BLOCK_HEADER_BYTES);
+            int method = header.get() & 0xFF;
+            int rawLength = header.getInt();
+            int payloadLength = header.getInt();
+            int crc = header.getInt();
+            checkFrame(codec, blockSize, method, rawLength, payloadLength);
+            if (i < offsets.length - 1 && rawLength != blockSize) {
+                throw new IOException("Block " + i + " holds " + rawLength + " bytes, block size is " + blockSize);
+            }
+            long next = i < offsets.length - 1 ? offsets[i + 1] : end;
+            if (offsets[i] + BLOCK_HEADER_BYTES + payloadLength != next) {
+                throw new IOException("Block " + i + " payload of " + payloadLength + " bytes does not end at " + next);
+            }
+            byte[] payload = new byte[payloadLength];
+            ByteBuffer target = ByteBuffer.wrap(payload);
+            long p = offsets[i] + BLOCK_HEADER_BYTES;
+            while (target.hasRemaining()) {
+                if (channel.read(target, p + target.position()) < 0) throw new EOFException("Block file is truncated");
+            }
+            return decode(new Frame(method, rawLength, crc, payload, payloadLength));
+        }
+
+        // Reads raw bytes at any position, decompressing only the blocks that cover them
+        int read(long rawPosition, byte[] dst, int off, int len) throws IOException {
+            int done = 0;
+            while (done < len && rawPosition + done < rawSize) {
+                long p = rawPosition + done;
+                byte[] block = readBlock((int) (p / blockSize));
+                int inBlock = (int) (p % blockSize);
+                int n = Math.min(len - done, block.length - inBlock);
+                System.arraycopy(block, inBlock, dst, off + done, n);
+                done += n;
+            }
+            return done;
+        }
+
+        // Decompresses every block in parallel straight to its place in the target file
+        void decompressTo(Path target) throws IOException {
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>();
+                for (int i = 0; i < offsets.length; i++) {
+                    int index = i;
+                    tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                        try {
+                            ByteBuffer raw = ByteBuffer.wrap(readBlock(index));
+                            long p = (long) index * blockSize;
+                            while (raw.hasRemaining()) out.write(raw, p + raw.position());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+                }
+                for (ForkJoinTask<?> task : tasks) join(task);
+            }
+        }
+
+        private ByteBuffer readFully(long position, int length) throws IOException {
+            ByteBuffer buf = ByteBuffer.allocate(length);
+            while (buf.hasRemaining()) {
+                if (channel.read(buf, position + buf.position()) < 0) throw new EOFException("Block file is truncated");
+            }
+            return buf.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    static long compressFile(Path source, Path target, Codec codec, int parallelism) throws IOException {
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = new CompressingOutputStream(Files.newOutputStream(target), codec,
+                     DEFAULT_BLOCK_SIZE, parallelism)) {
+            return in.transferTo(out);
+        }
+    }
+
+    // usage: java BlockCompression [sizeInMB]
+    public static void main(String[] args) throws Exception {
+        long sizeMb = args.length > 0 ? Long.parseLong(args[0]) : 128;
+        Path dir = Files.createTempDirectory("block-compression");
+        Path text = MappedWordCounter.createTextFile(dir.resolve("words.txt"), sizeMb << 20);
+        Path random = FileCopyEngine.createTestFile(dir.resolve("random.bin"), 32L << 20);
+        Path packed = dir.resolve("packed.pblk");
+        Path unpacked = dir.resolve("unpacked");
+        int cores = Runtime.getRuntime().availableProcessors();
+        try {
+            for (Path source : List.of(text, random)) {
+                long size = Files.size(source);
+                for (Codec codec : List.of(Codec.DEFLATE, Codec.LZ)) {
+                    for (int parallelism : cores == 1 ? new int[] { 1 } : new int[] { 1, cores }) {
+                        compressFile(source, packed, codec, parallelism); // warm-up
+                        long start = System.nanoTime();
+                        compressFile(source, packed, codec, parallelism);
+                        long compress = System.nanoTime() - start;
+
+                        start = System.nanoTime();
+                        try (InputStream in = new DecompressingInputStream(Files.newInputStream(packed), parallelism);
+                             OutputStream out = Files.newOutputStream(unpacked)) {
+                            in.transferTo(out);
+                        }
+                        long decompress = System.nanoTime() - start;
+                        boolean same = Files.mismatch(source, unpacked) == -1;
+                        System.out.printf("%-11s %-12s x%-2d ratio %5.2f | compress %7.1f MB/s | decompress %7.1f MB/s | ok %b%n",
+                                source.getFileName(), codec.getClass().getSimpleName(), parallelism,
+                                size / (double) Files.size(packed), size / 1e6 / (compress / 1e9),
+                                size / 1e6 / (decompress / 1e9), same);
+                    }
+                }
+            }
+
+            compressFile(text, packed, Codec.LZ, cores);
+            try (BlockFile file = new BlockFile(packed)) {
+                long start = System.nanoTime();
+                file.decompressTo(unpacked);
+                System.out.printf("BlockFile parallel decompress of %d blocks: %.1f ms (ok %b)%n", file.blockCount(),
+                        (System.nanoTime() - start) / 1e6, Files.mismatch(text, unpacked) == -1);
+
+                byte[] slice = new byte[64];
+                long middle = file.rawSize() / 2;
+                start = System.nanoTime();
+                file.read(middle, slice, 0, slice.length);
+                long randomAccess = System.nanoTime() - start;
+                byte[] expected = new byte[64];
+                try (FileChannel channel = FileChannel.open(text)) {
+                    channel.read(ByteBuffer.wrap(expected), middle);
+                }
+                System.out.printf("random access read at %,d: %.2f ms (ok %b)%n",
+                        middle, randomAccess / 1e6, Arrays.equals(slice, expected));
+            }
+
+            // serialized catalog through the compressed stream
+            Map<String, CatalogProduct> catalog = new HashMap<>();
+            for (int i = 0; i < 200_000; i++) catalog.put(Integer.toString(i), new CatalogProduct("Product " + i, i % 1000));
+            try (ObjectOutputStream oos = new ObjectOutputStream(compress(Files.newOutputStream(packed), Codec.LZ))) {
+                oos.writeObject(catalog);
+            }
+            try (ObjectInputStream ois = new ObjectInputStream(decompress(Files.newInputStream(packed)))) {
+                @SuppressWarnings("unchecked")
+                Map<String, CatalogProduct> back = (Map<String, CatalogProduct>) ois.readObject();
+                System.out.printf("catalog .ser through LZ: %,d bytes, %,d products read back%n",
+                        Files.size(packed), back.size());
+            }
+        } finally {
+            for (Path p : List.of(text, random, packed, unpacked)) Files.deleteIfExists(p);
+            Files.deleteIfExists(dir);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+import java.io.*;
+
+// Catalog entry stored in products_map.ser (W6_T2_P1); own file so the codecs and stores can share it.
+// Not called Product: W7_T2_P4 compiles its own Product class into this same directory.
+class CatalogProduct implements Serializable{
+    private static final long serialVersionUID = 1L;
+
+    String name;
+    int price;
+    
+    CatalogProduct(String name, int price){
+        this.name = name;
+        this.price = price;
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("{ name = " + this.name + ", price = " + this.price + "}");
+        
+        return sb.toString();
+    }
+
+    
+}
@@ -0,0 +1,145 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+// Binary file copy with a choice of strategy (see W6_T1_P2.copyBinaryFile for the stream version):
+//
+//  STREAM        : FileInputStream -> byte[4096] -> FileOutputStream, every byte crosses into the heap
+//  DIRECT_BUFFER : FileChannel read/write through one large direct buffer, no heap copy
+//  TRANSFER      : FileChannel.transferTo, the kernel moves the pages itself (sendfile / copy_file_range)
+//  AUTO          : TRANSFER for anything but tiny files, DIRECT_BUFFER if transferTo makes no progress
+public class FileCopyEngine {
+
+    enum Mode { STREAM, DIRECT_BUFFER, TRANSFER, AUTO }
+
+    // below this a single buffered read/write is as cheap as setting up a kernel transfer
+    static final long SMALL_FILE_BYTES = 64 * 1024;
+    static final int DIRECT_BUFFER_BYTES = 1 << 20;
+    // transferTo is capped per call by some kernels/JDKs, so go in bounded steps
+    static final long TRANSFER_STEP_BYTES = 64L << 20;
+
+    static long copy(Path source, Path dest, Mode mode) throws IOException {
+        if (mode == Mode.STREAM) {
+            return streamCopy(source, dest);
+        }
+
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(dest, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            long size = in.size();
+            switch (mode) {
+                case DIRECT_BUFFER:
+                    return bufferCopy(in, out, 0);
+                case TRANSFER:
+                    long copied = transferCopy(in, out, size, true);
+                    if (copied < size) {
+                        throw new IOException("transferTo stopped after " + copied + " of " + size + " bytes");
+                    }
+                    return copied;
+                default:
+                    if (size < SMALL_FILE_BYTES) {
+                        return bufferCopy(in, out, 0);
+                    }
+                    long done = transferCopy(in, out, size, false);
+                    // transfer not supported / stalled for this pair of files: finish with the buffer
+                    return done < size ? done + bufferCopy(in, out, done) : done;
+            }
+        }
+    }
+
+    static long copy(Path source, Path dest) throws IOException {
+        return copy(source, dest, Mode.AUTO);
+    }
+
+    // Same as W6_T1_P2.copyBinaryFile
+    private static long streamCopy(Path source, Path dest) throws IOException {
+        long total = 0;
+        try (FileInputStream fis = new FileInputStream(source.toFile());
+             FileOutputStream fos = new FileOutputStream(dest.toFile())) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = fis.read(buffer)) != -1) {
+                fos.write(buffer, 0, read);
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    // Returns how many bytes were moved; less than size when the channel gives up (returns 0).
+    // A failing transferTo is rethrown when strict, otherwise it also just ends the copy early.
+    private static long transferCopy(FileChannel in, FileChannel out, long size, boolean strict) throws IOException {
+        long position = 0;
+        while (position < size) {
+            long moved;
+            try {
+                moved = in.transferTo(position, Math.min(TRANSFER_STEP_BYTES, size - position), out);
+            } catch (IOException e) {
+                if (strict) throw e;
+                // e.g. unsupported on this file system, let the caller fall back
+                break;
+            }
+            if (moved <= 0) {
+                break;
+            }
+            position += moved;
+        }
+        return position;
+    }
+
+    // Copies from position to the end of in, writing at the same position in out
+    private static long bufferCopy(FileChannel in, FileChannel out, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(DIRECT_BUFFER_BYTES,
+                Math.max(1, in.size() - position)));
+        long start = position;
+        while (in.read(buffer, position) > 0 || buffer.position() > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += out.write(buffer, position);
+            }
+            buffer.clear();
+        }
+        return position - start;
+    }
+
+    static Path createTestFile(Path path, long bytes) throws IOException {
+        byte[] block = new byte[1 << 20];
+        new Random(7).nextBytes(block);
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(path), 1 << 20)) {
+            for (long written = 0; written < bytes; written += block.length) {
+                os.write(block, 0, (int) Math.min(block.length, bytes - written));
+            }
+        }
+        return path;
+    }
+
+    // usage: java FileCopyEngine [sizeInMB]
+    public static void main(String[] args) throws IOException {
+        long sizeMb = args.length > 0 ? Long.parseLong(args[0]) : 256;
+        Path dir = Files.createTempDirectory("copy-bench");
+        Path source = createTestFile(dir.resolve("source.bin"), sizeMb << 20);
+        Path dest = dir.resolve("dest.bin");
+
+        try {
+            for (Mode mode : Mode.values()) {
+                copy(source, dest, mode); // warm-up, also pulls the source into the page cache
+                long best = Long.MAX_VALUE;
+                for (int round = 0; round < 3; round++) {
+                    long start = System.nanoTime();
+                    copy(source, dest, mode);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                boolean same = Files.mismatch(source, dest) == -1;
+                System.out.printf("%-13s %4d MB in %7.1f ms = %7.1f MB/s (identical: %b)%n",
+                        mode, sizeMb, best / 1e6, sizeMb / (best / 1e9), same);
+            }
+        } finally {
+            Files.deleteIfExists(source);
+            Files.deleteIfExists(dest);
+            Files.deleteIfExists(dir);
+        }
+    }
+}
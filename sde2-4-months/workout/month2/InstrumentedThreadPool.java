@@ -0,0 +1,396 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Latency histogram with power-of-two buckets: bucket i counts samples in [2^i, 2^(i+1)) ns.
+// Striped per recording thread: each thread owns a long[] stripe and updates it with plain
+// single-writer stores (opaque, so readers see whole values), no CAS and no shared cache line.
+// Readers add the stripes up; stripes of threads that exit are folded into `retired`.
+class LatencyHistogram {
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int TOTAL = 64;
+    private static final int MAX = 65;
+
+    private final List<long[]> stripes = new ArrayList<>();
+    private final long[] retired = new long[MAX + 1];
+
+    // a new stripe for the calling thread; record() into it from that thread only
+    synchronized long[] newStripe() {
+        long[] stripe = new long[MAX + 1];
+        stripes.add(stripe);
+        return stripe;
+    }
+
+    // folds a stripe whose thread will not record any more into the retired totals
+    synchronized void retire(long[] stripe) {
+        if (!stripes.remove(stripe)) return;
+        for (int i = 0; i < TOTAL + 1; i++) retired[i] += (long) LONGS.getOpaque(stripe, i);
+        retired[MAX] = Math.max(retired[MAX], (long) LONGS.getOpaque(stripe, MAX));
+    }
+
+    static void record(long[] stripe, long nanos) {
+        if (nanos < 0) nanos = 0;
+        int bucket = 63 - Long.numberOfLeadingZeros(nanos | 1);
+        LONGS.setOpaque(stripe, bucket, stripe[bucket] + 1);
+        LONGS.setOpaque(stripe, TOTAL, stripe[TOTAL] + nanos);
+        if (nanos > stripe[MAX]) LONGS.setOpaque(stripe, MAX, nanos);
+    }
+
+    // sum of all stripes: buckets, total, max
+    private synchronized long[] snapshot() {
+        long[] sum = retired.clone();
+        for (long[] stripe : stripes) {
+            for (int i = 0; i < TOTAL + 1; i++) sum[i] += (long) LONGS.getOpaque(stripe, i);
+            sum[MAX] = Math.max(sum[MAX], (long) LONGS.getOpaque(stripe, MAX));
+        }
+        return sum;
+    }
+
+    long count() {
+        long[] sum = snapshot();
+        long n = 0;
+        for (int i = 0; i < TOTAL; i++) n += sum[i];
+        return n;
+    }
+
+    long maxNanos() { return snapshot()[MAX]; }
+
+    double meanNanos() {
+        long[] sum = snapshot();
+        long n = 0;
+        for (int i = 0; i < TOTAL; i++) n += sum[i];
+        return n == 0 ? 0 : (double) sum[TOTAL] / n;
+    }
+
+    // Upper bound of the bucket holding the p-th percentile (p in 0..100)
+    long percentileNanos(double p) {
+        long[] sum = snapshot();
+        long total = 0;
+        for (int i = 0; i < TOTAL; i++) total += sum[i];
+        if (total == 0) return 0;
+
+        long max = sum[MAX];
+        long rank = (long) Math.ceil(total * p / 100.0);
+        long seen = 0;
+        for (int i = 0; i < TOTAL; i++) {
+            seen += sum[i];
+            if (seen >= rank) {
+                return i == 63 ? max : Math.min((1L << (i + 1)) - 1, max);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%s p50<=%s p99<=%s max=%s",
+                count(), fmt((long) meanNanos()), fmt(percentileNanos(50)),
+                fmt(percentileNanos(99)), fmt(maxNanos()));
+    }
+
+    static String fmt(long nanos) {
+        if (nanos < 1_000) return nanos + "ns";
+        if (nanos < 1_000_000) return String.format("%.1fus", nanos / 1e3);
+        if (nanos < 1_000_000_000) return String.format("%.1fms", nanos / 1e6);
+        return String.format("%.2fs", nanos / 1e9);
+    }
+}
+
+// ThreadPoolExecutor that measures how long every task waited in the queue and how long it ran.
+// Tasks are not wrapped, so shutdownNow() and remove(Runnable) see exactly what was queued.
+// submit()/invokeAll() tasks (and ExecutorCompletionService's) are created by newTaskFor() as
+// TimedFutureTask, which stamps the enqueue time; the run start lives in a per-worker ThreadLocal
+// between beforeExecute and afterExecute. Plain execute() tasks carry no stamp, so only their run
+// time is recorded.
+//
+// One nanoTime per boundary: when a task was already queued before its worker finished the
+// previous task, the worker picks it up straight away, so that previous end time doubles as this
+// task's start and a busy pool pays two clock reads per task (enqueue, end) instead of three.
+public class InstrumentedThreadPool extends ThreadPoolExecutor {
+
+    // FutureTask that remembers when it was submitted. It is normally the Runnable the hooks see;
+    // when something wraps it first (ExecutorCompletionService queues its own FutureTask around it),
+    // it records its queue delay and failure itself when the wrapper runs it.
+    final class TimedFutureTask<V> extends FutureTask<V> {
+        final long enqueuedAt = System.nanoTime();
+        boolean timed; // queue delay already recorded by beforeExecute
+        boolean failed; // written and read by the worker running the task
+
+        TimedFutureTask(Callable<V> callable) {
+            super(callable);
+        }
+
+        TimedFutureTask(Runnable runnable, V result) {
+            super(runnable, result);
+        }
+
+        @Override
+        public void run() {
+            if (!timed) {
+                Worker w = worker.get();
+                if (w.running) {
+                    timed = true;
+                    LatencyHistogram.record(w.queueStripe, w.startedAt - enqueuedAt);
+                }
+            }
+            super.run();
+            if (failed || isCancelled()) {
+                Worker w = worker.get();
+                if (w.running) w.taskFailed = true;
+            }
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            failed = true;
+            super.setException(t);
+        }
+    }
+
+    // Per worker thread, touched only by that thread
+    final class Worker {
+        long startedAt; // start of the running task
+        long lastEnd = Long.MIN_VALUE; // end of the previous task
+        boolean running; // between beforeExecute and afterExecute
+        boolean taskFailed; // the running task's TimedFutureTask failed or was cancelled
+        final long[] queueStripe = queueDelay.newStripe();
+        final long[] execStripe = execTime.newStripe();
+
+        void retire() {
+            queueDelay.retire(queueStripe);
+            execTime.retire(execStripe);
+        }
+    }
+
+    private final ThreadLocal<Worker> worker = ThreadLocal.withInitial(Worker::new);
+
+    // Counts rejections and then hands over to the normal policy
+    static final class CountingRejectionHandler implements RejectedExecutionHandler {
+        final RejectedExecutionHandler delegate;
+        final LongAdder rejected = new LongAdder();
+
+        CountingRejectionHandler(RejectedExecutionHandler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            rejected.increment();
+            delegate.rejectedExecution(r, executor);
+        }
+    }
+
+    private final String name;
+    private final LatencyHistogram queueDelay = new LatencyHistogram();
+    private final LatencyHistogram execTime = new LatencyHistogram();
+    private final LongAdder failed = new LongAdder(); // completed = execTime count - failed
+    private final CountingRejectionHandler rejections;
+    private volatile ScheduledExecutorService reporter;
+
+    InstrumentedThreadPool(String name, int coreSize, int maxSize, long keepAlive, TimeUnit unit,
+            BlockingQueue<Runnable> queue) {
+        this(name, coreSize, maxSize, keepAlive, unit, queue, new CountingRejectionHandler(new AbortPolicy()));
+    }
+
+    private InstrumentedThreadPool(String name, int coreSize, int maxSize, long keepAlive, TimeUnit unit,
+            BlockingQueue<Runnable> queue, CountingRejectionHandler handler) {
+        super(coreSize, maxSize, keepAlive, unit, queue, Executors.defaultThreadFactory(), handler);
+        this.name = name;
+        this.rejections = handler;
+        setThreadFactory(workerThreads(name));
+    }
+
+    // Same shape as Executors.newFixedThreadPool, but instrumented
+    static InstrumentedThreadPool newFixedThreadPool(String name, int nThreads) {
+        return new InstrumentedThreadPool(name, nThreads, nThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>());
+    }
+
+    // Same shape as Executors.newCachedThreadPool, but instrumented
+    static InstrumentedThreadPool newCachedThreadPool(String name) {
+        return new InstrumentedThreadPool(name, 0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>());
+    }
+
+    // Named workers that fold their histogram stripes away when they exit (idle cached-pool threads)
+    private ThreadFactory workerThreads(String name) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> new Thread(() -> {
+            try {
+                r.run();
+            } finally {
+                worker.get().retire();
+                worker.remove();
+            }
+        }, name + "-" + seq.incrementAndGet());
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new TimedFutureTask<>(callable);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new TimedFutureTask<>(runnable, value);
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        Worker w = worker.get();
+        w.running = true;
+        if (r instanceof TimedFutureTask<?> task) {
+            // queued before the previous task ended: no idle gap, so that end is this start
+            long start = w.lastEnd != Long.MIN_VALUE && task.enqueuedAt - w.lastEnd <= 0 ? w.lastEnd : System.nanoTime();
+            w.startedAt = start;
+            task.timed = true;
+            LatencyHistogram.record(w.queueStripe, start - task.enqueuedAt);
+        } else {
+            w.startedAt = System.nanoTime();
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        Worker w = worker.get();
+        long end = System.nanoTime();
+        LatencyHistogram.record(w.execStripe, end - w.startedAt);
+        w.lastEnd = end;
+        w.running = false;
+
+        // submit() keeps the exception inside the FutureTask, so t is only set for execute()
+        if (t != null || w.taskFailed) {
+            w.taskFailed = false;
+            failed.increment();
+        }
+        super.afterExecute(r, t);
+    }
+
+    @Override
+    protected void terminated() {
+        stopReporter();
+        super.terminated();
+    }
+
+    // Prints a snapshot every period on a daemon thread until the pool terminates
+    synchronized void startReporter(long period, TimeUnit unit) {
+        if (reporter != null) return;
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name + "-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> System.out.println(report()), period, period, unit);
+    }
+
+    synchronized void stopReporter() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    LatencyHistogram queueDelay() { return queueDelay; }
+
+    LatencyHistogram execTime() { return execTime; }
+
+    long completedCount() { return execTime.count() - failed.sum(); }
+
+    long failedCount() { return failed.sum(); }
+
+    long rejectedCount() { return rejections.rejected.sum(); }
+
+    String report() {
+        return String.format("[%s] active=%d queued=%d completed=%d failed=%d rejected=%d%n"
+                + "    queue delay : %s%n"
+                + "    exec time   : %s",
+                name, getActiveCount(), getQueue().size(), completedCount(), failedCount(), rejectedCount(),
+                queueDelay, execTime);
+    }
+
+    // Per-task cost of the instrumentation alone: the same batches of empty tasks go through a
+    // throwaway instrumented pool and a plain ThreadPoolExecutor, one worker each, and the difference
+    // is the overhead. Each batch is queued behind a gate task first (as on a busy pool) and then
+    // drained in one go, so queue hand-off and wake-ups are paid once per batch, not per task.
+    static double hookOverheadNanos(int tasks) throws InterruptedException, ExecutionException {
+        int batch = 1024;
+        int rounds = Math.max(1, tasks / batch);
+        InstrumentedThreadPool instrumented = newFixedThreadPool("overhead", 1);
+        ThreadPoolExecutor plain = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        try {
+            long plainNanos = timeBatches(plain, rounds, batch);
+            long instrumentedNanos = timeBatches(instrumented, rounds, batch);
+            return (double) (instrumentedNanos - plainNanos) / ((long) rounds * batch);
+        } finally {
+            instrumented.shutdown();
+            plain.shutdown();
+        }
+    }
+
+    private static long timeBatches(ExecutorService executor, int rounds, int batch)
+            throws InterruptedException, ExecutionException {
+        Runnable noop = () -> {};
+        long total = 0;
+        for (int round = 0; round < rounds; round++) {
+            CountDownLatch gate = new CountDownLatch(1);
+            executor.submit(() -> {
+                gate.await();
+                return null;
+            });
+            long start = System.nanoTime();
+            Future<?> last = null;
+            for (int i = 0; i < batch; i++) last = executor.submit(noop);
+            gate.countDown();
+            last.get();
+            total += System.nanoTime() - start;
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws Exception {
+        InstrumentedThreadPool pool = newFixedThreadPool("array-sum", 4);
+        pool.startReporter(200, TimeUnit.MILLISECONDS);
+
+        int[] arr = new int[10_000_000];
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = i + 1;
+        }
+
+        int parts = 64;
+        int partitionSize = arr.length / parts;
+        long result = 0;
+        for (int round = 0; round < 5; round++) {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < parts; i++) {
+                int start = i * partitionSize;
+                int end = (i == parts - 1) ? arr.length : start + partitionSize;
+                futures.add(pool.submit(() -> {
+                    long sum = 0;
+                    for (int j = start; j < end; j++) sum += arr[j];
+                    return sum;
+                }));
+            }
+            result = 0;
+            for (var f : futures) result += f.get();
+            Thread.sleep(100);
+        }
+        System.out.println("Sum = " + result);
+        System.out.println(pool.report());
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+
+        // overhead check
+        for (int warmup = 0; warmup < 5; warmup++) {
+            hookOverheadNanos(1_000_000);
+        }
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            best = Math.min(best, hookOverheadNanos(2_000_000));
+        }
+        System.out.printf("instrumentation overhead: %.1f ns/task (best of 5)%n", best);
+    }
+}
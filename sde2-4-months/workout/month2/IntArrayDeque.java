@@ -0,0 +1,118 @@
+import java.util.*;
+
+// Circular int buffer -- Queue<Integer>/Deque<Integer> (LinkedList: a node and an Integer per element)
+// as one int[]. The capacity is a power of two, so wrapping around is a mask instead of a modulo.
+// poll()/peek() on an empty deque throw NoSuchElementException: there is no null int to return.
+public class IntArrayDeque {
+
+    private int[] elements;
+    private int head; // index of the first element
+    private int size;
+
+    IntArrayDeque() {
+        this(16);
+    }
+
+    IntArrayDeque(int capacity) {
+        elements = new int[Math.max(2, Integer.highestOneBit(Math.max(capacity, 1) - 1) << 1)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Queue order: offer at the tail, poll from the head
+    void offer(int value) {
+        addLast(value);
+    }
+
+    int poll() {
+        return pollFirst();
+    }
+
+    int peek() {
+        return peekFirst();
+    }
+
+    void addLast(int value) {
+        if (size == elements.length) grow();
+        elements[(head + size) & (elements.length - 1)] = value;
+        size++;
+    }
+
+    void addFirst(int value) {
+        if (size == elements.length) grow();
+        head = (head - 1) & (elements.length - 1);
+        elements[head] = value;
+        size++;
+    }
+
+    // Stack order: push/pop at the head
+    void push(int value) {
+        addFirst(value);
+    }
+
+    int pop() {
+        return pollFirst();
+    }
+
+    int pollFirst() {
+        if (size == 0) throw new NoSuchElementException();
+        int value = elements[head];
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return value;
+    }
+
+    int pollLast() {
+        if (size == 0) throw new NoSuchElementException();
+        size--;
+        return elements[(head + size) & (elements.length - 1)];
+    }
+
+    int peekFirst() {
+        if (size == 0) throw new NoSuchElementException();
+        return elements[head];
+    }
+
+    int peekLast() {
+        if (size == 0) throw new NoSuchElementException();
+        return elements[(head + size - 1) & (elements.length - 1)];
+    }
+
+    // i-th element from the head
+    int get(int index) {
+        Objects.checkIndex(index, size);
+        return elements[(head + index) & (elements.length - 1)];
+    }
+
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    int[] toArray() {
+        int[] out = new int[size];
+        int first = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, out, 0, first);
+        System.arraycopy(elements, 0, out, first, size - first);
+        return out;
+    }
+
+    // doubles the array and unwraps the contents to start at 0
+    private void grow() {
+        if (elements.length >= 1 << 30) throw new OutOfMemoryError("IntArrayDeque too large");
+        int[] bigger = toArray();
+        elements = Arrays.copyOf(bigger, elements.length * 2);
+        head = 0;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,148 @@
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+// Growable int[] -- List<Integer> without an Integer object (16 bytes + 4-8 byte reference) per element.
+// Iterate with an index loop (for i < size(): get(i)); there is deliberately no Iterator<Integer>.
+public class IntArrayList {
+
+    private int[] elements;
+    private int size;
+
+    IntArrayList() {
+        this(10);
+    }
+
+    IntArrayList(int capacity) {
+        elements = new int[Math.max(capacity, 1)];
+    }
+
+    static IntArrayList of(int... values) {
+        IntArrayList list = new IntArrayList(values.length);
+        list.addAll(values);
+        return list;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void add(int value) {
+        if (size == elements.length) grow(size + 1);
+        elements[size++] = value;
+    }
+
+    void add(int index, int value) {
+        Objects.checkIndex(index, size + 1);
+        if (size == elements.length) grow(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+    }
+
+    void addAll(int... values) {
+        if (size + values.length > elements.length) grow(size + values.length);
+        System.arraycopy(values, 0, elements, size, values.length);
+        size += values.length;
+    }
+
+    int get(int index) {
+        Objects.checkIndex(index, size);
+        return elements[index];
+    }
+
+    int set(int index, int value) {
+        Objects.checkIndex(index, size);
+        int old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    // Removes by position (List.remove(int) is ambiguous with remove(Object) for List<Integer>)
+    int removeAt(int index) {
+        Objects.checkIndex(index, size);
+        int old = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return old;
+    }
+
+    // Keeps the order; one pass, no copy of the array
+    boolean removeIf(IntPredicate filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!filter.test(elements[i])) elements[kept++] = elements[i];
+        }
+        boolean changed = kept != size;
+        size = kept;
+        return changed;
+    }
+
+    int indexOf(int value) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == value) return i;
+        }
+        return -1;
+    }
+
+    boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void sort() {
+        Arrays.sort(elements, 0, size);
+    }
+
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) action.accept(elements[i]);
+    }
+
+    IntStream stream() {
+        return Arrays.stream(elements, 0, size);
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    void trimToSize() {
+        if (elements.length > size) elements = Arrays.copyOf(elements, Math.max(size, 1));
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(minCapacity, elements.length * 3L / 2 + 1));
+        if (capacity < minCapacity) throw new OutOfMemoryError("IntArrayList too large");
+        elements = Arrays.copyOf(elements, capacity);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof IntArrayList other && Arrays.equals(elements, 0, size, other.elements, 0, other.size);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 1;
+        for (int i = 0; i < size; i++) h = 31 * h + elements[i];
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(elements[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
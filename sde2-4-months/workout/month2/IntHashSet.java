@@ -0,0 +1,128 @@
+import java.util.*;
+import java.util.function.IntConsumer;
+
+// Set<Integer> as one int[] with linear probing; same layout rules as IntIntHashMap
+// (slot value 0 = empty, the element 0 is a separate flag, removal shifts entries back).
+public class IntHashSet {
+
+    private int[] slots;
+    private int mask;
+    private int shift;
+    private int size; // not counting the element 0
+    private boolean hasZero;
+
+    IntHashSet() {
+        this(16);
+    }
+
+    IntHashSet(int expectedSize) {
+        allocate(Math.max(4, Integer.highestOneBit(Math.max(expectedSize, 2) * 3 / 2 - 1) << 1));
+    }
+
+    private void allocate(int capacity) {
+        slots = new int[capacity];
+        mask = capacity - 1;
+        shift = Integer.numberOfLeadingZeros(mask);
+    }
+
+    private int slot(int value) {
+        return (value * 0x9E3779B9) >>> shift;
+    }
+
+    int size() {
+        return size + (hasZero ? 1 : 0);
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // true if the value was not in the set yet
+    boolean add(int value) {
+        if (value == 0) {
+            boolean added = !hasZero;
+            hasZero = true;
+            return added;
+        }
+        int i = slot(value);
+        while (slots[i] != 0) {
+            if (slots[i] == value) return false;
+            i = (i + 1) & mask;
+        }
+        slots[i] = value;
+        if (++size > slots.length * 2 / 3) rehash(slots.length * 2);
+        return true;
+    }
+
+    boolean contains(int value) {
+        if (value == 0) return hasZero;
+        for (int i = slot(value); ; i = (i + 1) & mask) {
+            int v = slots[i];
+            if (v == value) return true;
+            if (v == 0) return false;
+        }
+    }
+
+    boolean remove(int value) {
+        if (value == 0) {
+            boolean had = hasZero;
+            hasZero = false;
+            return had;
+        }
+        int i = slot(value);
+        while (slots[i] != value) {
+            if (slots[i] == 0) return false;
+            i = (i + 1) & mask;
+        }
+        int gap = i;
+        for (int j = (gap + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+            int home = slot(slots[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                slots[gap] = slots[j];
+                gap = j;
+            }
+        }
+        slots[gap] = 0;
+        size--;
+        return true;
+    }
+
+    void clear() {
+        Arrays.fill(slots, 0);
+        size = 0;
+        hasZero = false;
+    }
+
+    void forEach(IntConsumer action) {
+        if (hasZero) action.accept(0);
+        for (int v : slots) {
+            if (v != 0) action.accept(v);
+        }
+    }
+
+    int[] toArray() {
+        int[] out = new int[size()];
+        int n = 0;
+        if (hasZero) out[n++] = 0;
+        for (int v : slots) {
+            if (v != 0) out[n++] = v;
+        }
+        return out;
+    }
+
+    private void rehash(int capacity) {
+        int[] old = slots;
+        allocate(capacity);
+        for (int v : old) {
+            if (v == 0) continue;
+            int j = slot(v);
+            while (slots[j] != 0) j = (j + 1) & mask;
+            slots[j] = v;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,158 @@
+import java.util.*;
+import java.util.function.IntFunction;
+
+// int -> object hash map: Map<Integer, V> without boxing the keys or allocating a node per entry.
+// Same probing scheme as IntIntHashMap; null values are not allowed (get() returns null for "absent").
+public class IntObjectMap<V> {
+
+    interface IntObjectConsumer<V> {
+        void accept(int key, V value);
+    }
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int shift;
+    private int size; // not counting key 0
+    private V zeroValue; // value for key 0, null if absent
+
+    IntObjectMap() {
+        this(16);
+    }
+
+    IntObjectMap(int expectedSize) {
+        allocate(Math.max(4, Integer.highestOneBit(Math.max(expectedSize, 2) * 3 / 2 - 1) << 1));
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        shift = Integer.numberOfLeadingZeros(mask);
+    }
+
+    private int slot(int key) {
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    int size() {
+        return size + (zeroValue != null ? 1 : 0);
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    private int find(int key) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            if (keys[i] == key) return i;
+            if (keys[i] == 0) return -1;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        if (key == 0) return zeroValue;
+        int i = find(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    // returns the previous value, or null
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        Objects.requireNonNull(value, "IntObjectMap does not store null values");
+        if (key == 0) {
+            V old = zeroValue;
+            zeroValue = value;
+            return old;
+        }
+        int i = slot(key);
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length * 2 / 3) rehash(keys.length * 2);
+        return null;
+    }
+
+    // e.g. adjacency: map.computeIfAbsent(u, k -> new IntArrayList()).add(v)
+    V computeIfAbsent(int key, IntFunction<? extends V> factory) {
+        V value = get(key);
+        if (value == null) {
+            value = factory.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        if (key == 0) {
+            V old = zeroValue;
+            zeroValue = null;
+            return old;
+        }
+        int i = find(key);
+        if (i < 0) return null;
+        V old = (V) values[i];
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = null; // let the value be collected
+        size--;
+        return old;
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        size = 0;
+        zeroValue = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(IntObjectConsumer<? super V> action) {
+        if (zeroValue != null) action.accept(0, zeroValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) action.accept(keys[i], (V) values[i]);
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int k = oldKeys[i];
+            if (k == 0) continue;
+            int j = slot(k);
+            while (keys[j] != 0) j = (j + 1) & mask;
+            keys[j] = k;
+            values[j] = oldValues[i];
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ", "{", "}");
+        forEach((k, v) -> joiner.add(k + "=" + v));
+        return joiner.toString();
+    }
+}
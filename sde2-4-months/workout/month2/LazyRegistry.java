@@ -0,0 +1,322 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// One place for expensive components that should be created once and on first use,
+// instead of every class re-writing volatile double-checked locking (see W5_T2_P3).
+//
+// Each component sits in a Lazy slot. Reads use getAcquire, which is all the fast path needs:
+// the factory's writes happen-before the setRelease that publishes the value.
+// (For a plain static singleton the holder-class idiom is even simpler; see Holder below.)
+//
+// A factory that needs its own component, directly or through others, is rejected with an
+// IllegalStateException instead of deadlocking -- also when the cycle runs across threads, as
+// when warmUp() creates A and B in parallel and each factory asks for the other.
+public class LazyRegistry {
+
+    static final class Lazy<T> implements Supplier<T> {
+
+        private static final VarHandle VALUE;
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(Lazy.class, "value", Object.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        final String name;
+        final boolean startupCritical;
+        private final Supplier<? extends T> factory;
+        // thread -> component it is blocked on; with `initializer` this is the wait-for graph
+        private static final ConcurrentHashMap<Thread, Lazy<?>> WAITING = new ConcurrentHashMap<>();
+
+        // not synchronized : a virtual thread blocked in a monitor pins its carrier thread
+        private final ReentrantLock initLock = new ReentrantLock();
+        private volatile Thread initializer; // thread running the factory, null otherwise
+        private Object value;           // only accessed through VALUE
+        private volatile long initNanos = -1;
+
+        Lazy(String name, Supplier<? extends T> factory, boolean startupCritical) {
+            this.name = name;
+            this.factory = factory;
+            this.startupCritical = startupCritical;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T get() {
+            Object v = VALUE.getAcquire(this);
+            return v != null ? (T) v : initialize();
+        }
+
+        // slow path : only the first caller(s) ever get here
+        @SuppressWarnings("unchecked")
+        private T initialize() {
+            // the factory (directly or through other components) asked for its own component
+            Thread self = Thread.currentThread();
+            if (initLock.isHeldByCurrentThread()) {
+                throw new IllegalStateException("Circular initialization of component " + name);
+            }
+            if (!initLock.tryLock()) {
+                // Every thread publishes its wait before checking, so of the threads closing a
+                // cycle at least the last one to arrive sees all of it
+                WAITING.put(self, this);
+                try {
+                    String cycle = cycleBackTo(self);
+                    if (cycle != null) {
+                        throw new IllegalStateException("Circular initialization of component " + name
+                                + " across threads: " + cycle);
+                    }
+                    initLock.lock();
+                } finally {
+                    WAITING.remove(self);
+                }
+            }
+            try {
+                initializer = self;
+                Object v = VALUE.getAcquire(this);
+                if (v == null) {
+                    long start = System.nanoTime();
+                    v = Objects.requireNonNull(factory.get(), () -> "Component " + name + " created null");
+                    initNanos = System.nanoTime() - start;
+                    VALUE.setRelease(this, v);
+                }
+                return (T) v;
+            } finally {
+                initializer = null;
+                initLock.unlock();
+            }
+        }
+
+        // Follows this component's initializer to the component it waits for, and so on; returns
+        // the chain of names if it leads back to self, null if it ends
+        private String cycleBackTo(Thread self) {
+            StringBuilder chain = new StringBuilder(name);
+            Lazy<?> lazy = this;
+            for (int hops = 0; hops <= WAITING.size(); hops++) {
+                Thread owner = lazy.initializer;
+                if (owner == null) return null;
+                if (owner == self) return chain.append(" -> ").append(name).toString();
+                lazy = WAITING.get(owner);
+                if (lazy == null) return null;
+                chain.append(" -> ").append(lazy.name);
+            }
+            return null;
+        }
+
+        boolean isInitialized() {
+            return VALUE.getAcquire(this) != null;
+        }
+
+        // -1 until the component has been created
+        long initNanos() {
+            return initNanos;
+        }
+    }
+
+    private final Map<String, Lazy<?>> components = new ConcurrentHashMap<>();
+
+    <T> Lazy<T> register(String name, Supplier<? extends T> factory) {
+        return register(name, factory, false);
+    }
+
+    // startup-critical components are created up front by warmUp()
+    <T> Lazy<T> registerStartupCritical(String name, Supplier<? extends T> factory) {
+        return register(name, factory, true);
+    }
+
+    private <T> Lazy<T> register(String name, Supplier<? extends T> factory, boolean startupCritical) {
+        Lazy<T> lazy = new Lazy<>(name, factory, startupCritical);
+        if (components.putIfAbsent(name, lazy) != null) {
+            throw new IllegalStateException("Component already registered: " + name);
+        }
+        return lazy;
+    }
+
+    <T> T get(String name, Class<T> type) {
+        Lazy<?> lazy = components.get(name);
+        if (lazy == null) {
+            throw new NoSuchElementException("No component registered as " + name);
+        }
+        return type.cast(lazy.get());
+    }
+
+    // Creates every startup-critical component in parallel; the slowest one bounds startup time
+    void warmUp(Duration timeout) throws InterruptedException, ExecutionException, TimeoutException {
+        List<Callable<Object>> inits = new ArrayList<>();
+        for (Lazy<?> lazy : components.values()) {
+            if (lazy.startupCritical) {
+                inits.add(lazy::get);
+            }
+        }
+        ScatterGather.gather(inits, timeout);
+    }
+
+    // name -> init time in nanos, for components that have been created
+    Map<String, Long> initTimings() {
+        Map<String, Long> timings = new TreeMap<>();
+        for (Lazy<?> lazy : components.values()) {
+            if (lazy.isInitialized()) {
+                timings.put(lazy.name, lazy.initNanos());
+            }
+        }
+        return timings;
+    }
+
+    String report() {
+        StringBuilder sb = new StringBuilder("Component init timings:");
+        for (Lazy<?> lazy : new TreeMap<>(components).values()) {
+            sb.append(String.format("%n    %-14s %-9s %s", lazy.name, lazy.startupCritical ? "critical" : "lazy",
+                    lazy.isInitialized() ? String.format("%.2f ms", lazy.initNanos() / 1e6) : "not created"));
+        }
+        return sb.toString();
+    }
+
+    // ---- access cost comparison ----
+
+    // same pattern as ThreadSafeSingleTon in W5_T2_P3
+    static final class DclSingleton {
+        private static volatile DclSingleton instance;
+
+        static DclSingleton getInstance() {
+            if (instance == null) {
+                synchronized (DclSingleton.class) {
+                    if (instance == null) {
+                        instance = new DclSingleton();
+                    }
+                }
+            }
+            return instance;
+        }
+    }
+
+    // holder-class idiom : the JVM's class initialisation does the locking, once
+    static final class Holder {
+        static final Holder INSTANCE = new Holder();
+    }
+
+    // One loop per variant, each calling its accessor directly: through a shared Supplier the call
+    // site would go megamorphic and every variant would measure interface dispatch instead
+    static long timeDcl(int iterations) {
+        DclSingleton expected = DclSingleton.getInstance();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            if (DclSingleton.getInstance() != expected) throw new IllegalStateException();
+        }
+        return System.nanoTime() - start;
+    }
+
+    static long timeLazy(Lazy<DclSingleton> lazy, int iterations) {
+        DclSingleton expected = lazy.get();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            if (lazy.get() != expected) throw new IllegalStateException();
+        }
+        return System.nanoTime() - start;
+    }
+
+    static long timeHolder(int iterations) {
+        Holder expected = Holder.INSTANCE;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            if (Holder.INSTANCE != expected) throw new IllegalStateException();
+        }
+        return System.nanoTime() - start;
+    }
+
+    // Locked read: what every access would cost without the lock-free fast path
+    static long timeLocked(ReentrantLock lock, Object value, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            lock.lock();
+            try {
+                if (value == null) throw new IllegalStateException();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    static Object sleepyComponent(String name, long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return name;
+    }
+
+    static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LazyRegistry registry = new LazyRegistry();
+        registry.registerStartupCritical("config", () -> sleepyComponent("config", 120));
+        registry.registerStartupCritical("db-pool", () -> sleepyComponent("db-pool", 200));
+        registry.registerStartupCritical("cache", () -> sleepyComponent("cache", 150));
+        registry.register("reports", () -> sleepyComponent("reports", 300));
+
+        long start = System.nanoTime();
+        registry.warmUp(Duration.ofSeconds(5));
+        System.out.printf("Warm-up took %.1f ms (sequential would be ~470 ms)%n", (System.nanoTime() - start) / 1e6);
+        System.out.println(registry.report());
+
+        System.out.println(registry.get("reports", String.class) + " created on first use");
+        System.out.println(registry.report());
+
+        // a factory that needs its own component fails fast instead of recursing
+        Lazy<Object> selfish = registry.register("selfish", () -> registry.get("selfish", Object.class));
+        try {
+            selfish.get();
+        } catch (IllegalStateException e) {
+            System.out.println("recursive init rejected: " + e.getMessage());
+        }
+
+        // the same cycle split over two warm-up threads: each factory waits for the other component
+        LazyRegistry pair = new LazyRegistry();
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        pair.registerStartupCritical("left", () -> {
+            bothStarted.countDown();
+            awaitQuietly(bothStarted);
+            return "left needs " + pair.get("right", String.class);
+        });
+        pair.registerStartupCritical("right", () -> {
+            bothStarted.countDown();
+            awaitQuietly(bothStarted);
+            return "right needs " + pair.get("left", String.class);
+        });
+        try {
+            pair.warmUp(Duration.ofSeconds(5));
+        } catch (ExecutionException e) {
+            System.out.println("cross-thread cycle rejected: " + e.getCause().getMessage());
+        }
+
+        // access cost, after warm-up of the JIT
+        Lazy<DclSingleton> lazy = registry.register("dcl-bench", DclSingleton::new);
+        ReentrantLock lock = new ReentrantLock();
+        int iterations = 100_000_000;
+        for (int round = 0; round < 3; round++) {
+            timeDcl(iterations);
+            timeLazy(lazy, iterations);
+            timeHolder(iterations);
+            timeLocked(lock, lazy.get(), iterations / 10);
+        }
+        System.out.printf("volatile DCL   : %.2f ns/access%n", (double) timeDcl(iterations) / iterations);
+        System.out.printf("VarHandle lazy : %.2f ns/access%n", (double) timeLazy(lazy, iterations) / iterations);
+        System.out.printf("holder class   : %.2f ns/access (constant after class init; the JIT folds it)%n",
+                (double) timeHolder(iterations) / iterations);
+        System.out.printf("lock per access: %.2f ns/access%n",
+                (double) timeLocked(lock, lazy.get(), iterations / 10) / (iterations / 10));
+    }
+}
@@ -0,0 +1,412 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.*;
+
+// Line-by-line copy / transform that works on the raw bytes (see W6_T1_P1.copyFile for the
+// BufferedReader / BufferedWriter version, which decodes and re-encodes every line).
+//
+// Lines are found by scanning a large direct buffer for '\n' / '\r' and travel through the
+// stages as slices of that buffer. A line is only turned into a String when a text stage asks
+// for it, and only copied into a byte[] when a byte stage wants to edit it.
+//
+//   LinePipeline.of(StandardCharsets.UTF_8)
+//       .filterContains("ERROR")
+//       .mapText(String::toUpperCase)
+//       .copy(source, dest);
+//
+// Newlines: "\n", "\r\n" and a lone "\r" all end a line (like readLine), and every written line
+// ends with lineSeparator (like newLine). Byte scanning is only valid for charsets where those
+// bytes can only mean a newline (ASCII, UTF-8, ISO-8859-x, ...); for others, such as UTF-16,
+// the pipeline falls back to decoding lines with a BufferedReader.
+public class LinePipeline {
+
+    // Keep or drop a line, looking at buf[from, to)
+    @FunctionalInterface
+    interface ByteFilter {
+        boolean test(ByteBuffer buf, int from, int to);
+    }
+
+    // Edit a line in place; may shrink or grow it within line.length, returns the new length
+    @FunctionalInterface
+    interface ByteMapper {
+        int map(byte[] line, int length);
+    }
+
+    // One stage: returns false to drop the line
+    private interface Stage {
+        boolean apply(Line line);
+    }
+
+    // The current line, in whichever form the previous stage left it
+    private static final class Line {
+        private static final int VIEW = 0, BYTES = 1, TEXT = 2;
+
+        final Charset charset;
+        int mode;
+        ByteBuffer view;
+        int from, to;
+        byte[] bytes = new byte[256];
+        ByteBuffer bytesView = ByteBuffer.wrap(bytes);
+        int length;
+        String text;
+
+        Line(Charset charset) {
+            this.charset = charset;
+        }
+
+        void setView(ByteBuffer buf, int from, int to) {
+            this.view = buf;
+            this.from = from;
+            this.to = to;
+            mode = VIEW;
+        }
+
+        void setText(String s) {
+            text = s;
+            mode = TEXT;
+        }
+
+        boolean testBytes(ByteFilter filter) {
+            if (mode == VIEW) {
+                return filter.test(view, from, to);
+            }
+            toBytes();
+            return filter.test(bytesView, 0, length);
+        }
+
+        void mapBytes(ByteMapper mapper) {
+            toBytes();
+            length = mapper.map(bytes, length);
+        }
+
+        String text() {
+            if (mode != TEXT) {
+                toBytes();
+                text = new String(bytes, 0, length, charset);
+                mode = TEXT;
+            }
+            return text;
+        }
+
+        private void toBytes() {
+            if (mode == VIEW) {
+                ensure(to - from);
+                view.get(from, bytes, 0, to - from);
+                length = to - from;
+            } else if (mode == TEXT) {
+                byte[] encoded = text.getBytes(charset);
+                ensure(encoded.length);
+                System.arraycopy(encoded, 0, bytes, 0, encoded.length);
+                length = encoded.length;
+            }
+            mode = BYTES;
+        }
+
+        private void ensure(int capacity) {
+            if (bytes.length < capacity) {
+                bytes = new byte[Math.max(capacity, bytes.length * 2)];
+                bytesView = ByteBuffer.wrap(bytes);
+            }
+        }
+
+        void writeTo(Output out) throws IOException {
+            switch (mode) {
+                case VIEW -> out.put(view, from, to - from);
+                case BYTES -> out.put(bytesView, 0, length);
+                default -> {
+                    byte[] encoded = text.getBytes(charset);
+                    out.put(ByteBuffer.wrap(encoded), 0, encoded.length);
+                }
+            }
+        }
+    }
+
+    // Direct output buffer in front of a FileChannel
+    private static final class Output implements Closeable {
+        final FileChannel channel;
+        ByteBuffer buffer;
+
+        Output(FileChannel channel, int capacity) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(capacity);
+        }
+
+        void put(ByteBuffer src, int offset, int length) throws IOException {
+            if (length > buffer.remaining()) {
+                drain();
+                if (length > buffer.capacity()) {
+                    buffer = ByteBuffer.allocateDirect(length);
+                }
+            }
+            buffer.put(buffer.position(), src, offset, length);
+            buffer.position(buffer.position() + length);
+        }
+
+        void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            drain();
+            channel.close();
+        }
+    }
+
+    static final int BUFFER_BYTES = 4 << 20;
+
+    private final Charset charset;
+    // "UTF-16" puts a byte order mark in front of every getBytes() result, so single lines are
+    // encoded big-endian and the mark is written once at the start of the file
+    private final Charset lineCharset;
+    private final List<Stage> stages = new ArrayList<>();
+    private byte[] lineSeparator;
+
+    private LinePipeline(Charset charset) {
+        this.charset = charset;
+        this.lineCharset = charset.name().equals("UTF-16") ? StandardCharsets.UTF_16BE : charset;
+        this.lineSeparator = System.lineSeparator().getBytes(lineCharset);
+    }
+
+    static LinePipeline of(Charset charset) {
+        return new LinePipeline(charset);
+    }
+
+    LinePipeline lineSeparator(String separator) {
+        lineSeparator = separator.getBytes(lineCharset);
+        return this;
+    }
+
+    LinePipeline filterBytes(ByteFilter filter) {
+        stages.add(line -> line.testBytes(filter));
+        return this;
+    }
+
+    LinePipeline mapBytes(ByteMapper mapper) {
+        stages.add(line -> {
+            line.mapBytes(mapper);
+            return true;
+        });
+        return this;
+    }
+
+    LinePipeline filterText(Predicate<String> filter) {
+        stages.add(line -> filter.test(line.text()));
+        return this;
+    }
+
+    LinePipeline mapText(UnaryOperator<String> mapper) {
+        stages.add(line -> {
+            line.setText(mapper.apply(line.text()));
+            return true;
+        });
+        return this;
+    }
+
+    // Keeps lines that contain the given text, matched on bytes in this pipeline's charset
+    LinePipeline filterContains(String needle) {
+        return filterBytes(contains(needle, lineCharset));
+    }
+
+    // Lines that contain the given text, compared as bytes encoded with charset (no decoding).
+    // Matches only start on a code unit boundary, so in UTF-16 / UTF-32 the needle cannot match
+    // across two characters.
+    static ByteFilter contains(String needle, Charset charset) {
+        byte[] pattern = needle.getBytes(charset);
+        // "UTF-16" / "UTF-32" getBytes() may start with a byte order mark; lines never do
+        byte[] mark = "".getBytes(charset);
+        if (mark.length > 0) pattern = Arrays.copyOfRange(pattern, mark.length, pattern.length);
+        int unit = "\n".getBytes(charset).length - mark.length;
+        byte[] p = pattern;
+        return (buf, from, to) -> {
+            outer:
+            for (int i = from; i <= to - p.length; i += unit) {
+                for (int j = 0; j < p.length; j++) {
+                    if (buf.get(i + j) != p[j]) continue outer;
+                }
+                return true;
+            }
+            return p.length == 0;
+        };
+    }
+
+    // ASCII-compatible charsets encode '\n' and '\r' as the single bytes 0x0A / 0x0D and never use
+    // those values inside another character; UTF-16 / UTF-32 fail this check
+    boolean canScanBytes() {
+        return Arrays.equals("\n\r azAZ09".getBytes(charset), "\n\r azAZ09".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // Returns the number of lines written
+    long copy(Path source, Path dest) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             Output out = new Output(FileChannel.open(dest, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING), BUFFER_BYTES)) {
+            return canScanBytes() ? copyBytes(in, out) : copyDecoded(in, out);
+        }
+    }
+
+    private long copyBytes(FileChannel in, Output out) throws IOException {
+        Line line = new Line(charset);
+        ByteBuffer separator = ByteBuffer.wrap(lineSeparator);
+        ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        long written = 0;
+        boolean eof = false;
+
+        while (true) {
+            if (!eof && in.read(buf) < 0) {
+                eof = true;
+            }
+            buf.flip();
+            int limit = buf.limit();
+            int start = 0;
+            int i = 0;
+            while (i < limit) {
+                byte b = buf.get(i);
+                if (b != '\n' && b != '\r') {
+                    i++;
+                    continue;
+                }
+                // a '\r' as the last byte could be half of "\r\n" : wait for the next read
+                if (b == '\r' && i + 1 == limit && !eof) {
+                    break;
+                }
+                line.setView(buf, start, i);
+                if (runStages(line)) {
+                    line.writeTo(out);
+                    out.put(separator, 0, lineSeparator.length);
+                    written++;
+                }
+                i += (b == '\r' && i + 1 < limit && buf.get(i + 1) == '\n') ? 2 : 1;
+                start = i;
+            }
+
+            if (eof) {
+                if (start < limit) { // last line without a newline
+                    line.setView(buf, start, limit);
+                    if (runStages(line)) {
+                        line.writeTo(out);
+                        out.put(separator, 0, lineSeparator.length);
+                        written++;
+                    }
+                }
+                return written;
+            }
+
+            // keep the unfinished line, grow the buffer if a single line fills all of it
+            buf.position(start);
+            buf.compact();
+            if (!buf.hasRemaining()) {
+                ByteBuffer bigger = ByteBuffer.allocateDirect(buf.capacity() * 2);
+                buf.flip();
+                bigger.put(buf);
+                buf = bigger;
+            }
+        }
+    }
+
+    private long copyDecoded(FileChannel in, Output out) throws IOException {
+        Line line = new Line(lineCharset);
+        if (lineCharset != charset) {
+            byte[] bom = { (byte) 0xFE, (byte) 0xFF };
+            out.put(ByteBuffer.wrap(bom), 0, bom.length);
+        }
+        ByteBuffer separator = ByteBuffer.wrap(lineSeparator);
+        long written = 0;
+        try (BufferedReader reader = new BufferedReader(Channels.newReader(in, charset), 1 << 16)) {
+            String s;
+            while ((s = reader.readLine()) != null) {
+                line.setText(s);
+                if (runStages(line)) {
+                    line.writeTo(out);
+                    out.put(separator, 0, lineSeparator.length);
+                    written++;
+                }
+            }
+        }
+        return written;
+    }
+
+    private boolean runStages(Line line) {
+        for (Stage stage : stages) {
+            if (!stage.apply(line)) return false;
+        }
+        return true;
+    }
+
+    // W6_T1_P1.copyFile, for comparison
+    static void copyWithReaderWriter(Path source, Path dest, Charset charset) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(source, charset);
+             BufferedWriter writer = Files.newBufferedWriter(dest, charset)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+    }
+
+    static long time(IORunnable run) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    @FunctionalInterface
+    interface IORunnable {
+        void run() throws IOException;
+    }
+
+    // usage: java LinePipeline [file]   (no file : generates a 256 MB sample)
+    public static void main(String[] args) throws IOException {
+        boolean generated = args.length == 0;
+        Path source = generated
+                ? MappedWordCounter.createTextFile(Files.createTempFile("lines", ".txt"), 256L << 20)
+                : Path.of(args[0]);
+        Path dest = Files.createTempFile("lines-out", ".txt");
+        Path reference = Files.createTempFile("lines-ref", ".txt");
+        Charset utf8 = StandardCharsets.UTF_8;
+
+        try {
+            long readerWriter = time(() -> copyWithReaderWriter(source, reference, utf8));
+            LinePipeline plainCopy = of(utf8);
+            long pipeline = time(() -> plainCopy.copy(source, dest));
+            System.out.printf("copy   : reader/writer %.1f ms, byte pipeline %.1f ms, identical: %b%n",
+                    readerWriter / 1e6, pipeline / 1e6, Files.mismatch(reference, dest) == -1);
+
+            // transform: keep lines mentioning "fox", upper-case them
+            long transformRef = time(() -> {
+                try (BufferedReader reader = Files.newBufferedReader(source, utf8);
+                     BufferedWriter writer = Files.newBufferedWriter(reference, utf8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.contains("fox")) {
+                            writer.write(line.toUpperCase());
+                            writer.newLine();
+                        }
+                    }
+                }
+            });
+            LinePipeline transform = of(utf8).filterContains("fox").mapText(String::toUpperCase);
+            long transformed = time(() -> transform.copy(source, dest));
+            System.out.printf("filter : reader/writer %.1f ms, byte pipeline %.1f ms, identical: %b%n",
+                    transformRef / 1e6, transformed / 1e6, Files.mismatch(reference, dest) == -1);
+        } finally {
+            if (generated) Files.deleteIfExists(source);
+            Files.deleteIfExists(dest);
+            Files.deleteIfExists(reference);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.*;
+
+// Lines of a memory-mapped file as a Spliterator that parallel streams can really split.
+//
+// Files.lines(...).parallel() reads and decodes on one thread and hands out batches; here every
+// split cuts its byte range in half at the first line break after the midpoint, so each core
+// decodes its own half of the file straight from the mapping.
+//
+// Files larger than one mapping are cut into segments of at most 1 GB that end at a line break;
+// a spliterator spanning several segments splits between segments first.
+// Lines end at '\n', '\r' or "\r\n", as in Files.lines and LinePipeline; no cut ever falls
+// between the '\r' and '\n' of a pair.
+//
+//   lines(path)  : Stream<String>, decoded with an ASCII-compatible charset (UTF-8 by default)
+//   slices(path) : Stream<ByteBuffer>, read-only views of each line's bytes, nothing decoded or copied
+public class LineSpliterator<T> implements Spliterator<T> {
+
+    static final long MAX_SEGMENT_BYTES = 1L << 30;
+    // ranges below this are not split further: the split point search and task overhead would dominate
+    static final int MIN_SPLIT_BYTES = 64 * 1024;
+
+    interface LineMapper<T> {
+        T map(MappedByteBuffer segment, int from, int to);
+    }
+
+    private final MappedByteBuffer[] segments;
+    private final LineMapper<T> mapper;
+    // current segment and position in it; lastSegment/end bound the range
+    private int segment;
+    private int pos;
+    private final int lastSegment;
+    private int end;
+
+    private LineSpliterator(MappedByteBuffer[] segments, int segment, int pos, int lastSegment, int end,
+            LineMapper<T> mapper) {
+        this.segments = segments;
+        this.segment = segment;
+        this.pos = pos;
+        this.lastSegment = lastSegment;
+        this.end = end;
+        this.mapper = mapper;
+    }
+
+    static Stream<String> lines(Path path) throws IOException {
+        return lines(path, StandardCharsets.UTF_8);
+    }
+
+    static Stream<String> lines(Path path, Charset charset) throws IOException {
+        if (!LinePipeline.of(charset).canScanBytes()) {
+            throw new IllegalArgumentException(charset + " is not ASCII compatible, '\\n' can not be found by byte");
+        }
+        return stream(path, (buf, from, to) -> {
+            byte[] bytes = new byte[to - from];
+            buf.get(from, bytes);
+            return new String(bytes, charset);
+        });
+    }
+
+    static Stream<ByteBuffer> slices(Path path) throws IOException {
+        return stream(path, (buf, from, to) -> buf.slice(from, to - from).asReadOnlyBuffer());
+    }
+
+    static <T> Stream<T> stream(Path path, LineMapper<T> mapper) throws IOException {
+        MappedByteBuffer[] segments = map(path);
+        int last = segments.length - 1;
+        return StreamSupport.stream(new LineSpliterator<>(segments, 0, 0, last, segments[last].limit(), mapper), false);
+    }
+
+    // Maps the file in pieces of at most 1 GB, each ending just after a line break (or at the end of the file)
+    private static MappedByteBuffer[] map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<MappedByteBuffer> segments = new ArrayList<>();
+            long start = 0;
+            do {
+                long length = Math.min(MAX_SEGMENT_BYTES, size - start);
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                if (start + length < size) {
+                    int cut = (int) length;
+                    while (cut > 0 && !endsLine(buf, cut - 1, (int) length)) cut--;
+                    if (cut == 0) throw new IOException("Line longer than " + MAX_SEGMENT_BYTES + " bytes at " + start);
+                    buf = buf.slice(0, cut);
+                    length = cut;
+                }
+                segments.add(buf);
+                start += length;
+            } while (start < size);
+            return segments.toArray(new MappedByteBuffer[0]);
+        }
+    }
+
+    // Whether a line break ends at byte i: a '\n', or a '\r' with no '\n' after it. A '\r' at
+    // limit - 1 does not count, the byte after it is not visible.
+    private static boolean endsLine(ByteBuffer buf, int i, int limit) {
+        byte b = buf.get(i);
+        return b == '\n' || b == '\r' && i + 1 < limit && buf.get(i + 1) != '\n';
+    }
+
+    private int limit() {
+        return segment == lastSegment ? end : segments[segment].limit();
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (pos >= limit()) {
+            if (segment == lastSegment) return false;
+            segment++;
+            pos = 0;
+        }
+        MappedByteBuffer buf = segments[segment];
+        int limit = limit();
+        int eol = pos;
+        byte b = 0;
+        while (eol < limit && (b = buf.get(eol)) != '\n' && b != '\r') eol++;
+        action.accept(mapper.map(buf, pos, eol));
+        pos = b == '\r' && eol + 1 < limit && buf.get(eol + 1) == '\n' ? eol + 2 : eol + 1;
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        while (tryAdvance(action)) {}
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if (segment < lastSegment) {
+            // hand off whole segments: [segment, mid) goes to the new spliterator
+            int mid = segment + (lastSegment - segment + 1) / 2;
+            LineSpliterator<T> prefix = new LineSpliterator<>(segments, segment, pos, mid - 1,
+                    segments[mid - 1].limit(), mapper);
+            segment = mid;
+            pos = 0;
+            return prefix;
+        }
+        int remaining = end - pos;
+        if (remaining < MIN_SPLIT_BYTES) return null;
+        MappedByteBuffer buf = segments[segment];
+        int cut = pos + remaining / 2;
+        while (cut < end && !endsLine(buf, cut, end)) cut++;
+        if (cut >= end - 1) return null; // one very long line, nothing to split
+        LineSpliterator<T> prefix = new LineSpliterator<>(segments, segment, pos, segment, cut + 1, mapper);
+        pos = cut + 1;
+        return prefix;
+    }
+
+    // bytes left, an upper bound for the number of lines
+    @Override
+    public long estimateSize() {
+        long bytes = limit() - pos;
+        for (int s = segment + 1; s <= lastSegment; s++) {
+            bytes += s == lastSegment ? end : segments[s].limit();
+        }
+        return bytes;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    // Word count of one line slice, same rule as MappedWordCounter
+    static long countWords(ByteBuffer line) {
+        int[] whitespace = MappedWordCounter.WHITESPACE;
+        long count = 0;
+        int prevWs = 1;
+        for (int i = line.position(); i < line.limit(); i++) {
+            int ws = whitespace[line.get(i) & 0xFF];
+            count += prevWs & (ws ^ 1);
+            prevWs = ws;
+        }
+        return count;
+    }
+
+    // usage: java LineSpliterator [file]   (no file : generates a 256 MB sample)
+    public static void main(String[] args) throws IOException {
+        boolean generated = args.length == 0;
+        Path path = generated
+                ? MappedWordCounter.createTextFile(Files.createTempFile("lines", ".txt"), 256L << 20)
+                : Path.of(args[0]);
+        try {
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                long filesLines;
+                try (Stream<String> lines = Files.lines(path)) {
+                    filesLines = lines.parallel()
+                            .flatMap(line -> Stream.of(line.trim().split("\\s+")))
+                            .filter(word -> !word.isEmpty())
+                            .count();
+                }
+                long filesNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                long spliterated;
+                try (Stream<String> lines = lines(path)) {
+                    spliterated = lines.parallel()
+                            .flatMap(line -> Stream.of(line.trim().split("\\s+")))
+                            .filter(word -> !word.isEmpty())
+                            .count();
+                }
+                long linesNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                long raw = slices(path).parallel().mapToLong(LineSpliterator::countWords).sum();
+                long slicesNanos = System.nanoTime() - start;
+
+                System.out.printf("Files.lines().parallel() %6.0f ms | lines().parallel() %6.0f ms | "
+                        + "slices().parallel() %5.0f ms | words %,d (same: %b)%n",
+                        filesNanos / 1e6, linesNanos / 1e6, slicesNanos / 1e6, raw,
+                        filesLines == spliterated && spliterated == raw);
+            }
+
+            try (Stream<String> lines = lines(path); Stream<String> expected = Files.lines(path)) {
+                System.out.println("same lines in order: " + lines.parallel().toList().equals(expected.toList()));
+            }
+        } finally {
+            if (generated) Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+// Word count straight from the bytes of a memory-mapped file, on all cores.
+// Same answer as W6_T1_P3.countWords (words are separated by \s = space \t \n \x0B \f \r),
+// but no String, no String[] and no regex per line.
+//
+// A word is counted where it starts: a non-whitespace byte whose previous byte is whitespace
+// (or the start of the file). Each chunk peeks at the one byte before its start, so chunks can
+// be cut at any offset and no word is counted twice or lost at a boundary -- the same result as
+// cutting the chunks at whitespace, without having to search for it.
+public class MappedWordCounter {
+
+    // 1 for the ASCII whitespace bytes matched by \s; UTF-8 never uses these values inside a multi-byte char
+    static final int[] WHITESPACE = new int[256];
+    static {
+        for (char c : new char[] { ' ', '\t', '\n', 0x0B, '\f', '\r' }) {
+            WHITESPACE[c] = 1;
+        }
+    }
+
+    // keep each mapping well below the 2 GB limit of a MappedByteBuffer
+    static final long MAX_CHUNK_BYTES = 256L << 20;
+
+    static long countWords(Path path) throws IOException {
+        return countWords(path, Runtime.getRuntime().availableProcessors());
+    }
+
+    static long countWords(Path path, int parallelism) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) return 0;
+
+            // a few chunks per core so that one slow chunk (page faults) does not hold up the rest
+            long chunkSize = Math.min(MAX_CHUNK_BYTES, Math.max(1 << 20, size / (parallelism * 4L)));
+            int chunks = (int) ((size + chunkSize - 1) / chunkSize);
+
+            try {
+                return IntStream.range(0, chunks).parallel()
+                        .mapToLong(i -> {
+                            long start = i * chunkSize;
+                            return countChunk(channel, start, Math.min(chunkSize, size - start));
+                        })
+                        .sum();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private static long countChunk(FileChannel channel, long start, long length) {
+        try {
+            // map one extra byte in front to know whether the first byte continues a word
+            long mapStart = start == 0 ? 0 : start - 1;
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, length + (start - mapStart));
+            int prevWs = start == 0 ? 1 : WHITESPACE[buf.get(0) & 0xFF];
+            return countStarts(buf, (int) (start - mapStart), buf.limit(), prevWs);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Branch-free: count += (previous is whitespace) & (current is not)
+    static long countStarts(MappedByteBuffer buf, int from, int to, int prevWs) {
+        long count = 0;
+        for (int i = from; i < to; i++) {
+            int ws = WHITESPACE[buf.get(i) & 0xFF];
+            count += prevWs & (ws ^ 1);
+            prevWs = ws;
+        }
+        return count;
+    }
+
+    // W6_T1_P3.countWords, for comparison
+    static long countWordsWithLines(Path path) throws IOException {
+        try (Stream<String> lines = Files.lines(path)) {
+            return lines
+                    .flatMap(line -> Stream.of(line.trim().split("\\s+")))
+                    .filter(word -> !word.isEmpty())
+                    .collect(Collectors.counting());
+        }
+    }
+
+    static Path createTextFile(Path path, long bytes) throws IOException {
+        String[] vocabulary = { "the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog",
+                "stream", "thread", "executor", "channel", "buffer", "naïve", "café" };
+        Random random = new Random(1);
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            long written = 0;
+            while (written < bytes) {
+                StringBuilder line = new StringBuilder();
+                int words = 1 + random.nextInt(15);
+                for (int w = 0; w < words; w++) {
+                    line.append(vocabulary[random.nextInt(vocabulary.length)]);
+                    line.append(random.nextInt(10) == 0 ? "\t " : " ");
+                }
+                writer.write(line.toString());
+                writer.newLine();
+                written += line.length() + 1;
+            }
+        }
+        return path;
+    }
+
+    // usage: java MappedWordCounter [file]   (no file : generates a 512 MB sample)
+    public static void main(String[] args) throws IOException {
+        Path path;
+        boolean generated = args.length == 0;
+        if (generated) {
+            path = createTextFile(Files.createTempFile("words", ".txt"), 512L << 20);
+        } else {
+            path = Path.of(args[0]);
+        }
+
+        try {
+            for (int warmup = 0; warmup < 3; warmup++) {
+                countWords(path);
+            }
+            long start = System.nanoTime();
+            long fast = countWords(path);
+            long fastNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long slow = countWordsWithLines(path);
+            long slowNanos = System.nanoTime() - start;
+
+            System.out.printf("Files.lines + split : %,d words in %.1f ms%n", slow, slowNanos / 1e6);
+            System.out.printf("mapped byte scan    : %,d words in %.1f ms (%.1fx)%n",
+                    fast, fastNanos / 1e6, (double) slowNanos / fastNanos);
+        } finally {
+            if (generated) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
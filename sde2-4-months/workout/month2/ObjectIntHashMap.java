@@ -0,0 +1,142 @@
+import java.util.*;
+
+// object -> int counter map: Map<K, Integer> (or Map<K, Long> from Collectors.counting()) without a
+// boxed value and a HashMap.Node per key. Keys, their hash codes and the counts sit in parallel
+// arrays with the same linear probing as IntIntHashMap; the stored hash lets a probe skip
+// non-matching slots without calling equals().
+//
+// Built for accumulation (group counts), so there is no remove; null keys are not allowed.
+public class ObjectIntHashMap<K> {
+
+    interface ObjectIntConsumer<K> {
+        void accept(K key, int value);
+    }
+
+    private Object[] keys;
+    private int[] hashes;
+    private int[] values;
+    private int mask;
+    private int shift;
+    private int size;
+
+    ObjectIntHashMap() {
+        this(16);
+    }
+
+    ObjectIntHashMap(int expectedSize) {
+        allocate(Math.max(4, Integer.highestOneBit(Math.max(expectedSize, 2) * 3 / 2 - 1) << 1));
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        hashes = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        shift = Integer.numberOfLeadingZeros(mask);
+    }
+
+    private static int hash(Object key) {
+        return key.hashCode() * 0x9E3779B9;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private int find(Object key) {
+        int h = hash(key);
+        for (int i = h >>> shift; ; i = (i + 1) & mask) {
+            Object k = keys[i];
+            if (k == null) return -1;
+            if (hashes[i] == h && (k == key || k.equals(key))) return i;
+        }
+    }
+
+    boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    int getOrDefault(Object key, int defaultValue) {
+        int i = find(key);
+        return i < 0 ? defaultValue : values[i];
+    }
+
+    void put(K key, int value) {
+        int i = slotFor(key);
+        values[i] = value;
+    }
+
+    // counters: map.merge(key, delta, Integer::sum) without boxing; returns the new value
+    int addTo(K key, int delta) {
+        int i = slotFor(key);
+        return values[i] += delta;
+    }
+
+    // slot holding key, claimed with value 0 if the key is new
+    private int slotFor(K key) {
+        int h = hash(Objects.requireNonNull(key, "ObjectIntHashMap does not store null keys"));
+        int i = h >>> shift;
+        for (Object k; (k = keys[i]) != null; i = (i + 1) & mask) {
+            if (hashes[i] == h && (k == key || k.equals(key))) return i;
+        }
+        if (size + 1 > keys.length * 2 / 3) {
+            rehash(keys.length * 2);
+            return slotFor(key);
+        }
+        keys[i] = key;
+        hashes[i] = h;
+        values[i] = 0;
+        size++;
+        return i;
+    }
+
+    // adds every count of other into this map
+    void addAll(ObjectIntHashMap<? extends K> other) {
+        other.forEach(this::addTo);
+    }
+
+    void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(ObjectIntConsumer<? super K> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) action.accept((K) keys[i], values[i]);
+        }
+    }
+
+    // boxed copy, one entry per distinct key
+    Map<K, Integer> toMap() {
+        Map<K, Integer> map = new HashMap<>(size * 4 / 3 + 1);
+        forEach(map::put);
+        return map;
+    }
+
+    private void rehash(int capacity) {
+        Object[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) continue;
+            int j = oldHashes[i] >>> shift;
+            while (keys[j] != null) j = (j + 1) & mask;
+            keys[j] = oldKeys[i];
+            hashes[j] = oldHashes[i];
+            values[j] = oldValues[i];
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(", ", "{", "}");
+        forEach((k, v) -> joiner.add(k + "=" + v));
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,176 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+// Copies one big file with several threads, each one owning a contiguous range of the file.
+// Positional FileChannel read/write (pread/pwrite) lets all threads share the same two channels
+// without touching a shared file position, so there are N I/Os in flight instead of one.
+//
+// The CRC32C of every chunk is taken from the buffer on its way to the destination (no extra read
+// of the source). With verify = true each chunk of the destination is read back and compared.
+public class ParallelFileCopy {
+
+    @FunctionalInterface
+    interface ProgressListener {
+        void onProgress(long bytesCopied, long totalBytes);
+    }
+
+    record Chunk(int index, long start, long length, long crc) {}
+
+    static final long MIN_CHUNK_BYTES = 8L << 20;
+    static final int BUFFER_BYTES = 1 << 20;
+    // report progress roughly every this many bytes, not on every buffer
+    static final long PROGRESS_STEP_BYTES = 16L << 20;
+    static final Duration NO_DEADLINE = Duration.ofDays(1);
+
+    static List<Chunk> copy(Path source, Path dest, int threads, boolean verify, ProgressListener listener)
+            throws IOException, InterruptedException {
+
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(dest, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            long size = in.size();
+            // set the final length up front so the writers never extend the file concurrently
+            // (Java has no fallocate, so on most file systems this is a sparse file until written)
+            if (size > 0) {
+                out.write(ByteBuffer.wrap(new byte[1]), size - 1);
+            }
+
+            int parts = (int) Math.max(1, Math.min(threads, size / MIN_CHUNK_BYTES));
+            long partSize = (size + parts - 1) / Math.max(parts, 1);
+            AtomicLong copied = new AtomicLong();
+            AtomicLong nextReport = new AtomicLong(PROGRESS_STEP_BYTES);
+
+            List<Callable<Chunk>> tasks = new ArrayList<>();
+            for (int i = 0; i < parts; i++) {
+                int index = i;
+                long start = i * partSize;
+                long length = Math.min(partSize, size - start);
+                tasks.add(() -> copyChunk(in, out, index, start, length, verify, bytes -> {
+                    long done = copied.addAndGet(bytes);
+                    long next = nextReport.get();
+                    // completion is reported once, after gather: a lost CAS here could drop it
+                    if (listener != null && done >= next && done < size
+                            && nextReport.compareAndSet(next, done + PROGRESS_STEP_BYTES)) {
+                        listener.onProgress(done, size);
+                    }
+                }));
+            }
+
+            ExecutorService pool = Executors.newFixedThreadPool(parts);
+            try {
+                List<Chunk> chunks = new ArrayList<>(ScatterGather.gather(pool, tasks, NO_DEADLINE));
+                chunks.sort(Comparator.comparingInt(Chunk::index));
+                if (listener != null) {
+                    listener.onProgress(size, size);
+                }
+                return chunks;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException io ? io : new IOException(cause);
+            } catch (TimeoutException e) {
+                throw new IOException(e);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private interface ByteCounter {
+        void add(long bytes);
+    }
+
+    private static Chunk copyChunk(FileChannel in, FileChannel out, int index, long start, long length,
+            boolean verify, ByteCounter counter) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(BUFFER_BYTES, Math.max(1, length)));
+        CRC32C crc = new CRC32C();
+        long position = start;
+        long end = start + length;
+
+        while (position < end) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Copy of chunk " + index + " cancelled");
+            }
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            int read = in.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Source shrank while copying chunk " + index);
+            }
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            long writeAt = position;
+            while (buffer.hasRemaining()) {
+                writeAt += out.write(buffer, writeAt);
+            }
+            position += read;
+            counter.add(read);
+        }
+
+        Chunk chunk = new Chunk(index, start, length, crc.getValue());
+        if (verify) {
+            long actual = checksum(out, start, length, buffer);
+            if (actual != chunk.crc()) {
+                throw new IOException(String.format("CRC32C mismatch in chunk %d (offset %d): expected %08x, got %08x",
+                        index, start, chunk.crc(), actual));
+            }
+        }
+        return chunk;
+    }
+
+    static long checksum(FileChannel channel, long start, long length, ByteBuffer buffer) throws IOException {
+        CRC32C crc = new CRC32C();
+        long position = start;
+        long end = start + length;
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("File ends before offset " + end);
+            }
+            buffer.flip();
+            crc.update(buffer);
+            position += read;
+        }
+        return crc.getValue();
+    }
+
+    // usage: java ParallelFileCopy [sizeInMB] [threads]
+    public static void main(String[] args) throws Exception {
+        long sizeMb = args.length > 0 ? Long.parseLong(args[0]) : 256;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        Path dir = Files.createTempDirectory("parallel-copy");
+        Path source = FileCopyEngine.createTestFile(dir.resolve("source.bin"), sizeMb << 20);
+        Path dest = dir.resolve("dest.bin");
+
+        try {
+            long start = System.nanoTime();
+            FileCopyEngine.copy(source, dest, FileCopyEngine.Mode.STREAM);
+            long streamNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<Chunk> chunks = copy(source, dest, threads, true, (done, total) ->
+                    System.out.printf("  %5.1f%%%n", 100.0 * done / total));
+            long parallelNanos = System.nanoTime() - start;
+
+            System.out.printf("stream copy           : %7.1f ms%n", streamNanos / 1e6);
+            System.out.printf("parallel copy+verify  : %7.1f ms, %d chunks, identical: %b%n",
+                    parallelNanos / 1e6, chunks.size(), Files.mismatch(source, dest) == -1);
+            for (Chunk c : chunks) {
+                System.out.printf("  chunk %d @%d len=%d crc32c=%08x%n", c.index(), c.start(), c.length(), c.crc());
+            }
+        } finally {
+            Files.deleteIfExists(source);
+            Files.deleteIfExists(dest);
+            Files.deleteIfExists(dir);
+        }
+    }
+}
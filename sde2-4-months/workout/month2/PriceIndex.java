@@ -0,0 +1,415 @@
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+
+// Secondary index on price for the product map of W6_T2_P1 (Map<String, CatalogProduct>), so range
+// queries stop scanning every product:
+//   between(lo, hi)         keys with lo <= price <= hi, cheapest first     O(log n + k)
+//   countBetween(lo, hi)    how many, without visiting them                  O(log n)
+//   cheapest(category, n)   the n cheapest of one category                  O(log n + n)
+//
+// Each product gets a row id; an index entry is one long, price in the high 32 bits and row id in
+// the low 32, so sorting the longs sorts by price (ties by row id). A replaced product keeps its
+// row and a removed product's row is handed to the next new key, so the row tables never grow
+// past the largest number of products held at once.
+// The entries live in a SortedRun: one big sorted long[] plus two small sorted arrays of entries
+// added and removed since it was built. Queries binary-search all three; once the small arrays
+// reach about 8 * sqrt(n) they are merged into a new big array. An update therefore costs
+// O(sqrt n) array shifting instead of rebuilding, and the big array stays a flat, cache-friendly
+// binary search (the merge writes into the previous big array, so it allocates
+// nothing once warmed up) -- simpler than a B+-tree and as fast for this read-heavy catalog.
+//
+// indexedView(map) wraps the catalog map so that every put/remove keeps the index current.
+public class PriceIndex {
+
+    // Sorted multiset of longs with cheap inserts and deletes (see above)
+    static final class SortedRun {
+        private long[] main = new long[0];
+        private int mainSize;
+        private long[] spare = new long[0]; // previous main, reused as the next merge target
+        private long[] added = new long[16];
+        private int addedSize;
+        private long[] removed = new long[16];
+        private int removedSize;
+
+        int size() {
+            return mainSize + addedSize - removedSize;
+        }
+
+        // bulk load: replaces the contents with the given entries (sorted here, in parallel)
+        void load(long[] entries) {
+            Arrays.parallelSort(entries);
+            main = entries;
+            mainSize = entries.length;
+            addedSize = 0;
+            removedSize = 0;
+        }
+
+        void add(long entry) {
+            int r = Arrays.binarySearch(removed, 0, removedSize, entry);
+            if (r >= 0) {
+                removedSize = delete(removed, removedSize, r);
+            } else {
+                added = insert(added, addedSize, insertionPoint(added, addedSize, entry), entry);
+                addedSize++;
+            }
+            maybeCompact();
+        }
+
+        void remove(long entry) {
+            int a = Arrays.binarySearch(added, 0, addedSize, entry);
+            if (a >= 0) {
+                addedSize = delete(added, addedSize, a);
+            } else if (Arrays.binarySearch(main, 0, mainSize, entry) >= 0) {
+                removed = insert(removed, removedSize, insertionPoint(removed, removedSize, entry), entry);
+                removedSize++;
+                maybeCompact();
+            }
+        }
+
+        private static int insertionPoint(long[] a, int size, long entry) {
+            int i = Arrays.binarySearch(a, 0, size, entry);
+            return i >= 0 ? i : -i - 1;
+        }
+
+        private static long[] insert(long[] a, int size, int at, long entry) {
+            if (size == a.length) a = Arrays.copyOf(a, a.length * 2);
+            System.arraycopy(a, at, a, at + 1, size - at);
+            a[at] = entry;
+            return a;
+        }
+
+        private static int delete(long[] a, int size, int at) {
+            System.arraycopy(a, at + 1, a, at, size - at - 1);
+            return size - 1;
+        }
+
+        private void maybeCompact() {
+            if (addedSize + removedSize > 256 + 8 * (int) Math.sqrt(mainSize)) compact();
+        }
+
+        // one merge pass: main minus removed, plus added
+        void compact() {
+            int size = size();
+            long[] merged = spare.length >= size ? spare : new long[size + (size >>> 3)];
+            int m = 0, a = 0, r = 0, w = 0;
+            while (m < mainSize || a < addedSize) {
+                if (m < mainSize && r < removedSize && main[m] == removed[r]) {
+                    m++;
+                    r++;
+                } else if (a >= addedSize || (m < mainSize && main[m] < added[a])) {
+                    merged[w++] = main[m++];
+                } else {
+                    merged[w++] = added[a++];
+                }
+            }
+            spare = main;
+            main = merged;
+            mainSize = size;
+            addedSize = 0;
+            removedSize = 0;
+        }
+
+        // entries in [from, to]
+        long count(long from, long to) {
+            return span(main, mainSize, from, to) + span(added, addedSize, from, to)
+                    - span(removed, removedSize, from, to);
+        }
+
+        private static int span(long[] a, int size, long from, long to) {
+            return upperBound(a, size, to) - lowerBound(a, size, from);
+        }
+
+        // Visits entries in [from, to] in ascending order until the visitor returns false
+        void forEach(long from, long to, LongPredicate visitor) {
+            int m = lowerBound(main, mainSize, from);
+            int mEnd = upperBound(main, mainSize, to);
+            int a = lowerBound(added, addedSize, from);
+            int aEnd = upperBound(added, addedSize, to);
+            int r = lowerBound(removed, removedSize, from);
+            while (m < mEnd || a < aEnd) {
+                if (m < mEnd && r < removedSize && main[m] == removed[r]) {
+                    m++;
+                    r++;
+                    continue;
+                }
+                long next = a >= aEnd || (m < mEnd && main[m] < added[a]) ? main[m++] : added[a++];
+                if (!visitor.test(next)) return;
+            }
+        }
+
+        // first index with a[i] >= x
+        private static int lowerBound(long[] a, int size, long x) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (a[mid] < x) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        // first index with a[i] > x
+        private static int upperBound(long[] a, int size, long x) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (a[mid] <= x) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    private final Function<? super CatalogProduct, String> categoryOf;
+    private final SortedRun all = new SortedRun();
+    private final Map<String, SortedRun> byCategory = new HashMap<>();
+    // row id -> key / product; rows of removed products are null until freeRows hands them out again
+    private final List<String> rowKeys = new ArrayList<>();
+    private final List<CatalogProduct> rowProducts = new ArrayList<>();
+    private final Map<String, Integer> rowOfKey = new HashMap<>();
+    private final IntArrayList freeRows = new IntArrayList();
+
+    // categoryOf may be null when per-category queries are not needed
+    PriceIndex(Function<? super CatalogProduct, String> categoryOf) {
+        this.categoryOf = categoryOf;
+    }
+
+    static PriceIndex build(Map<String, CatalogProduct> catalog, Function<? super CatalogProduct, String> categoryOf) {
+        PriceIndex index = new PriceIndex(categoryOf);
+        long[] entries = new long[catalog.size()];
+        Map<String, IntArrayList> categoryRows = new HashMap<>();
+        for (Map.Entry<String, CatalogProduct> e : catalog.entrySet()) {
+            int row = index.rowKeys.size();
+            index.rowKeys.add(e.getKey());
+            index.rowProducts.add(e.getValue());
+            index.rowOfKey.put(e.getKey(), row);
+            entries[row] = entry(e.getValue().price, row);
+            if (categoryOf != null) categoryRows.computeIfAbsent(categoryOf.apply(e.getValue()), c -> new IntArrayList()).add(row);
+        }
+        // one sort per run instead of n incremental inserts
+        categoryRows.forEach((category, rows) -> {
+            long[] categoryEntries = new long[rows.size()];
+            for (int i = 0; i < categoryEntries.length; i++) categoryEntries[i] = entries[rows.get(i)];
+            SortedRun run = new SortedRun();
+            run.load(categoryEntries);
+            index.byCategory.put(category, run);
+        });
+        index.all.load(entries);
+        return index;
+    }
+
+    private static long entry(int price, int row) {
+        return (long) price << 32 | row;
+    }
+
+    private static long from(int price) {
+        return (long) price << 32;
+    }
+
+    private static long to(int price) {
+        return (long) price << 32 | 0xFFFFFFFFL;
+    }
+
+    // Adds or replaces the product stored under key
+    void put(String key, CatalogProduct product) {
+        put(key, product, categoryOf(key, product));
+    }
+
+    // Checks the arguments and derives the category before anything is changed
+    private String categoryOf(String key, CatalogProduct product) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(product, "product");
+        return categoryOf == null ? null : categoryOf.apply(product);
+    }
+
+    private void put(String key, CatalogProduct product, String category) {
+        Integer existing = rowOfKey.get(key);
+        int row;
+        if (existing != null) {
+            row = existing;
+            unindex(row);
+        } else {
+            if (freeRows.isEmpty()) {
+                row = rowKeys.size();
+                rowKeys.add(key);
+                rowProducts.add(null);
+            } else {
+                row = freeRows.removeAt(freeRows.size() - 1);
+                rowKeys.set(row, key);
+            }
+            rowOfKey.put(key, row);
+        }
+        rowProducts.set(row, product);
+        long e = entry(product.price, row);
+        all.add(e);
+        if (categoryOf != null) byCategory.computeIfAbsent(category, c -> new SortedRun()).add(e);
+    }
+
+    void remove(String key) {
+        Integer row = rowOfKey.remove(key);
+        if (row == null) return;
+        unindex(row);
+        rowKeys.set(row, null);
+        rowProducts.set(row, null);
+        freeRows.add(row);
+    }
+
+    // drops the entries of the product currently in row from the runs
+    private void unindex(int row) {
+        CatalogProduct old = rowProducts.get(row);
+        long e = entry(old.price, row);
+        all.remove(e);
+        if (categoryOf != null) byCategory.get(categoryOf.apply(old)).remove(e);
+    }
+
+    int size() {
+        return all.size();
+    }
+
+    // keys of products with lo <= price <= hi, cheapest first
+    List<String> between(int lo, int hi) {
+        List<String> keys = new ArrayList<>();
+        if (lo <= hi) all.forEach(from(lo), to(hi), e -> keys.add(rowKeys.get((int) e)));
+        return keys;
+    }
+
+    long countBetween(int lo, int hi) {
+        return lo > hi ? 0 : all.count(from(lo), to(hi));
+    }
+
+    long countBetween(String category, int lo, int hi) {
+        SortedRun run = byCategory.get(category);
+        return run == null || lo > hi ? 0 : run.count(from(lo), to(hi));
+    }
+
+    // the n cheapest products of one category, cheapest first
+    List<String> cheapest(String category, int n) {
+        List<String> keys = new ArrayList<>();
+        SortedRun run = byCategory.get(category);
+        if (run != null && n > 0) {
+            run.forEach(Long.MIN_VALUE, Long.MAX_VALUE, e -> {
+                keys.add(rowKeys.get((int) e));
+                return keys.size() < n;
+            });
+        }
+        return keys;
+    }
+
+    // top-N cheapest for every category at once
+    Map<String, List<String>> cheapestPerCategory(int n) {
+        Map<String, List<String>> result = new TreeMap<>();
+        for (String category : byCategory.keySet()) {
+            List<String> keys = cheapest(category, n);
+            if (!keys.isEmpty()) result.put(category, keys);
+        }
+        return result;
+    }
+
+    // The catalog map, with every put/remove through it also applied to this index
+    Map<String, CatalogProduct> indexedView(Map<String, CatalogProduct> catalog) {
+        return new AbstractMap<>() {
+            @Override
+            public CatalogProduct put(String key, CatalogProduct product) {
+                String category = categoryOf(key, product); // a bad product must not reach the catalog either
+                CatalogProduct old = catalog.put(key, product);
+                PriceIndex.this.put(key, product, category);
+                return old;
+            }
+
+            @Override
+            public CatalogProduct remove(Object key) {
+                CatalogProduct old = catalog.remove(key);
+                if (old != null) PriceIndex.this.remove((String) key);
+                return old;
+            }
+
+            @Override
+            public CatalogProduct get(Object key) {
+                return catalog.get(key);
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return catalog.containsKey(key);
+            }
+
+            @Override
+            public int size() {
+                return catalog.size();
+            }
+
+            // read-only: removing through entrySet would bypass the index
+            @Override
+            public Set<Entry<String, CatalogProduct>> entrySet() {
+                return Collections.unmodifiableMap(catalog).entrySet();
+            }
+        };
+    }
+
+    // usage: java PriceIndex [products]
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String[] kinds = { "Powder", "Oil", "Brush", "Soap", "Shampoo" };
+        Random random = new Random(4);
+        Map<String, CatalogProduct> catalog = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            catalog.put(Integer.toString(i), new CatalogProduct(kinds[random.nextInt(kinds.length)] + " " + i, random.nextInt(100_000)));
+        }
+        // W6 products have no category field; the first word of the name serves as one here
+        Function<CatalogProduct, String> category = p -> p.name.substring(0, p.name.indexOf(' '));
+
+        long start = System.nanoTime();
+        PriceIndex index = build(catalog, category);
+        System.out.printf("indexed %,d products in %.0f ms%n", n, (System.nanoTime() - start) / 1e6);
+
+        Map<String, CatalogProduct> products = index.indexedView(catalog);
+        start = System.nanoTime();
+        int updates = 200_000;
+        for (int i = 0; i < updates; i++) {
+            String key = Integer.toString(random.nextInt(n + n / 10)); // mostly updates, some new products
+            if (i % 10 == 0) products.remove(key);
+            else products.put(key, new CatalogProduct(kinds[random.nextInt(kinds.length)] + " v" + i, random.nextInt(100_000)));
+        }
+        System.out.printf("%,d incremental puts/removes: %.0f ns each%n", updates, (System.nanoTime() - start) / (double) updates);
+
+        int queries = 10_000;
+        long indexed = 0;
+        start = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            int lo = random.nextInt(100_000);
+            indexed += index.countBetween(lo, lo + 50);
+        }
+        long indexNanos = System.nanoTime() - start;
+        long scanned = 0;
+        Random replay = new Random(99);
+        start = System.nanoTime();
+        for (int q = 0; q < 20; q++) {
+            int lo = replay.nextInt(100_000);
+            for (CatalogProduct p : catalog.values()) if (p.price >= lo && p.price <= lo + 50) scanned++;
+        }
+        long scanNanos = (System.nanoTime() - start) / 20;
+        System.out.printf("count in range: index %.2f us per query, full scan %.2f ms per query (avg %d vs %d hits)%n",
+                indexNanos / 1e3 / queries, scanNanos / 1e6, indexed / queries, scanned / 20);
+
+        // answers must equal a scan of the map
+        boolean ok = true;
+        for (int q = 0; q < 50; q++) {
+            int lo = random.nextInt(100_000);
+            int hi = lo + random.nextInt(500);
+            List<String> keys = index.between(lo, hi);
+            long expected = catalog.values().stream().filter(p -> p.price >= lo && p.price <= hi).count();
+            ok &= keys.size() == expected && index.countBetween(lo, hi) == expected;
+            for (int i = 1; i < keys.size(); i++) ok &= catalog.get(keys.get(i - 1)).price <= catalog.get(keys.get(i)).price;
+            String kind = kinds[q % kinds.length];
+            ok &= index.countBetween(kind, lo, hi) == catalog.values().stream()
+                    .filter(p -> category.apply(p).equals(kind) && p.price >= lo && p.price <= hi).count();
+        }
+        List<String> cheapestOil = index.cheapest("Oil", 3);
+        ok &= cheapestOil.size() == 3 && catalog.get(cheapestOil.get(0)).price == catalog.values().stream()
+                .filter(p -> category.apply(p).equals("Oil")).mapToInt(p -> p.price).min().getAsInt();
+        System.out.println("matches full scans: " + ok + ", size " + index.size() + " = " + catalog.size());
+        index.cheapestPerCategory(2).forEach((c, keys) -> System.out.println("  " + c + " -> "
+                + keys.stream().map(catalog::get).toList()));
+    }
+}
@@ -0,0 +1,221 @@
+import java.util.*;
+import java.util.function.Supplier;
+
+// Memory and throughput of the boxed JDK collections against IntArrayList, IntArrayDeque,
+// IntIntHashMap, IntHashSet and IntObjectMap, plus a randomized check that both give the same answers.
+//
+// Memory is the heap growth (after GC) while the collection is reachable; values above 127
+// are used so Integer.valueOf's cache does not hide the boxing cost.
+public class PrimitiveCollectionsBenchmark {
+
+    static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    static <T> void memory(String label, Supplier<T> build) {
+        long before = usedHeap();
+        T collection = build.get();
+        long after = usedHeap();
+        System.out.printf("  %-30s %,8d KB%n", label, (after - before) / 1024);
+        Objects.requireNonNull(collection); // keep it reachable until measured
+    }
+
+    static long time(Runnable body) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            body.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    static volatile long sink;
+
+    // usage: java PrimitiveCollectionsBenchmark [elements]
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int[] keys = new Random(13).ints(n, 1_000, Integer.MAX_VALUE).toArray();
+
+        verify();
+
+        System.out.printf("memory for %,d ints:%n", n);
+        memory("ArrayList<Integer>", () -> {
+            List<Integer> list = new ArrayList<>();
+            for (int k : keys) list.add(k);
+            return list;
+        });
+        memory("IntArrayList", () -> {
+            IntArrayList list = new IntArrayList();
+            for (int k : keys) list.add(k);
+            return list;
+        });
+        memory("HashMap<Integer,Integer>", () -> {
+            Map<Integer, Integer> map = new HashMap<>();
+            for (int k : keys) map.put(k, k);
+            return map;
+        });
+        memory("IntIntHashMap", () -> {
+            IntIntHashMap map = new IntIntHashMap();
+            for (int k : keys) map.put(k, k);
+            return map;
+        });
+        memory("HashSet<Integer>", () -> {
+            Set<Integer> set = new HashSet<>();
+            for (int k : keys) set.add(k);
+            return set;
+        });
+        memory("IntHashSet", () -> {
+            IntHashSet set = new IntHashSet();
+            for (int k : keys) set.add(k);
+            return set;
+        });
+
+        System.out.printf("throughput, %,d operations (best of 5):%n", n);
+        report("list add + sum", time(() -> {
+            List<Integer> list = new ArrayList<>();
+            for (int k : keys) list.add(k);
+            long sum = 0;
+            for (int v : list) sum += v;
+            sink = sum;
+        }), time(() -> {
+            IntArrayList list = new IntArrayList();
+            for (int k : keys) list.add(k);
+            long sum = 0;
+            for (int i = 0; i < list.size(); i++) sum += list.get(i);
+            sink = sum;
+        }));
+        report("queue offer/poll (BFS-like)", time(() -> {
+            Queue<Integer> queue = new ArrayDeque<>();
+            long sum = 0;
+            for (int k : keys) {
+                queue.offer(k);
+                if (queue.size() > 1024) sum += queue.poll();
+            }
+            while (!queue.isEmpty()) sum += queue.poll();
+            sink = sum;
+        }), time(() -> {
+            IntArrayDeque queue = new IntArrayDeque();
+            long sum = 0;
+            for (int k : keys) {
+                queue.offer(k);
+                if (queue.size() > 1024) sum += queue.poll();
+            }
+            while (!queue.isEmpty()) sum += queue.poll();
+            sink = sum;
+        }));
+        report("map count (k % 65536)", time(() -> {
+            Map<Integer, Integer> counts = new HashMap<>();
+            for (int k : keys) counts.merge(k & 0xFFFF | 0x10000, 1, Integer::sum);
+            sink = counts.size();
+        }), time(() -> {
+            IntIntHashMap counts = new IntIntHashMap();
+            for (int k : keys) counts.addTo(k & 0xFFFF | 0x10000, 1);
+            sink = counts.size();
+        }));
+        report("set add + contains", time(() -> {
+            Set<Integer> set = new HashSet<>();
+            for (int k : keys) set.add(k);
+            long hits = 0;
+            for (int k : keys) if (set.contains(k + 1)) hits++;
+            sink = hits;
+        }), time(() -> {
+            IntHashSet set = new IntHashSet();
+            for (int k : keys) set.add(k);
+            long hits = 0;
+            for (int k : keys) if (set.contains(k + 1)) hits++;
+            sink = hits;
+        }));
+        report("int -> object map get", time(() -> {
+            Map<Integer, String> map = new HashMap<>();
+            for (int i = 0; i < keys.length; i += 16) map.put(keys[i], "v");
+            long hits = 0;
+            for (int k : keys) if (map.get(k) != null) hits++;
+            sink = hits;
+        }), time(() -> {
+            IntObjectMap<String> map = new IntObjectMap<>();
+            for (int i = 0; i < keys.length; i += 16) map.put(keys[i], "v");
+            long hits = 0;
+            for (int k : keys) if (map.get(k) != null) hits++;
+            sink = hits;
+        }));
+    }
+
+    static void report(String label, long boxed, long primitive) {
+        System.out.printf("  %-30s boxed %7.1f ms | primitive %7.1f ms | %.1fx%n",
+                label, boxed / 1e6, primitive / 1e6, boxed / (double) primitive);
+    }
+
+    // random operations on both implementations, including key 0 and removals
+    static void verify() {
+        Random random = new Random(17);
+        Map<Integer, Integer> refMap = new HashMap<>();
+        IntIntHashMap map = new IntIntHashMap(4);
+        Set<Integer> refSet = new HashSet<>();
+        IntHashSet set = new IntHashSet(4);
+        Map<Integer, String> refObj = new HashMap<>();
+        IntObjectMap<String> obj = new IntObjectMap<>(4);
+        Deque<Integer> refDeque = new ArrayDeque<>();
+        IntArrayDeque deque = new IntArrayDeque(2);
+        List<Integer> refList = new ArrayList<>();
+        IntArrayList list = new IntArrayList(1);
+
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    refMap.merge(key, 1, Integer::sum);
+                    map.addTo(key, 1);
+                    refSet.add(key);
+                    set.add(key);
+                    refObj.put(key, "v" + i);
+                    obj.put(key, "v" + i);
+                }
+                case 1 -> {
+                    refMap.remove(key);
+                    map.remove(key);
+                    refSet.remove(key);
+                    set.remove(key);
+                    refObj.remove(key);
+                    obj.remove(key);
+                }
+                case 2 -> {
+                    if (random.nextBoolean()) {
+                        refDeque.addFirst(key);
+                        deque.addFirst(key);
+                    } else {
+                        refDeque.addLast(key);
+                        deque.addLast(key);
+                    }
+                    refList.add(key);
+                    list.add(key);
+                }
+                default -> {
+                    if (!refDeque.isEmpty()) {
+                        boolean first = random.nextBoolean();
+                        int expected = first ? refDeque.pollFirst() : refDeque.pollLast();
+                        int actual = first ? deque.pollFirst() : deque.pollLast();
+                        if (expected != actual) throw new AssertionError("deque mismatch");
+                    }
+                    if (!refList.isEmpty()) {
+                        int index = random.nextInt(refList.size());
+                        if (refList.remove(index) != list.removeAt(index)) throw new AssertionError("list mismatch");
+                    }
+                }
+            }
+            if (refMap.getOrDefault(key, -1) != map.getOrDefault(key, -1)
+                    || refSet.contains(key) != set.contains(key)
+                    || !Objects.equals(refObj.get(key), obj.get(key))) {
+                throw new AssertionError("map/set mismatch at key " + key);
+            }
+        }
+        boolean same = refMap.size() == map.size() && refSet.size() == set.size() && refObj.size() == obj.size()
+                && refDeque.size() == deque.size() && refList.size() == list.size()
+                && Arrays.equals(refDeque.stream().mapToInt(Integer::intValue).toArray(), deque.toArray())
+                && Arrays.equals(refList.stream().mapToInt(Integer::intValue).toArray(), list.toArray());
+        if (!same) throw new AssertionError("size or content mismatch");
+        System.out.println("randomized check against JDK collections: ok");
+    }
+}
@@ -0,0 +1,180 @@
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+// Collectors for the "group and count / sum" pipelines (W7_T2_P4, W6_T1_P3) that accumulate into
+// primitive open-addressing maps instead of HashMap<K, Long> / HashMap<K, Double>:
+//
+//   groupingBy(f, counting())            ->  groupingByToIntCount(f)           ObjectIntHashMap<K>
+//   groupingBy(intKey, counting())       ->  groupingByIntKeyToIntCount(f)     IntIntHashMap
+//   groupingBy(f, summingDouble(g))      ->  summingDoubleByKey(f, g)          ObjectDoubleHashMap<K>
+//   partitioningBy(p, counting())        ->  partitionCounts(p)                PartitionCounts
+//
+// The JDK versions allocate a HashMap node plus a separate long[1] (counting) or double[3]
+// (summingDouble) container per group, then box every result in a finishing pass; these add
+// straight into an int or double slot of the map's arrays. Counts are int: a group of more than
+// 2^31 elements is not expected here.
+//
+// Parallel streams: every fork gets its own map, so accumulation never contends on a lock; the
+// combiner adds the smaller map into the larger one, so merging costs O(distinct keys of the
+// smaller side) per join.
+public class PrimitiveCollectors {
+
+    record PartitionCounts(long matching, long notMatching) {
+        long total() {
+            return matching + notMatching;
+        }
+    }
+
+    static <T, K> Collector<T, ObjectIntHashMap<K>, ObjectIntHashMap<K>> groupingByToIntCount(
+            Function<? super T, ? extends K> classifier) {
+        return Collector.of(
+                ObjectIntHashMap::new,
+                (map, element) -> map.addTo(key(classifier, element), 1),
+                (a, b) -> {
+                    if (a.size() < b.size()) {
+                        b.addAll(a);
+                        return b;
+                    }
+                    a.addAll(b);
+                    return a;
+                },
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    static <T> Collector<T, IntIntHashMap, IntIntHashMap> groupingByIntKeyToIntCount(ToIntFunction<? super T> classifier) {
+        return Collector.of(
+                IntIntHashMap::new,
+                (map, element) -> map.addTo(classifier.applyAsInt(element), 1),
+                (a, b) -> {
+                    if (a.size() < b.size()) {
+                        a.forEach(b::addTo);
+                        return b;
+                    }
+                    b.forEach(a::addTo);
+                    return a;
+                },
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    static <T, K> Collector<T, ObjectDoubleHashMap<K>, ObjectDoubleHashMap<K>> summingDoubleByKey(
+            Function<? super T, ? extends K> classifier, ToDoubleFunction<? super T> mapper) {
+        return Collector.of(
+                ObjectDoubleHashMap::new,
+                (map, element) -> map.addTo(key(classifier, element), mapper.applyAsDouble(element)),
+                (a, b) -> {
+                    if (a.size() < b.size()) {
+                        b.addAll(a);
+                        return b;
+                    }
+                    a.addAll(b);
+                    return a;
+                },
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    // accumulator is a long[2]: [0] matching, [1] not matching
+    static <T> Collector<T, long[], PartitionCounts> partitionCounts(Predicate<? super T> predicate) {
+        return Collector.of(
+                () -> new long[2],
+                (counts, element) -> counts[predicate.test(element) ? 0 : 1]++,
+                (a, b) -> {
+                    a[0] += b[0];
+                    a[1] += b[1];
+                    return a;
+                },
+                counts -> new PartitionCounts(counts[0], counts[1]));
+    }
+
+    // same message as Collectors.groupingBy
+    private static <T, K> K key(Function<? super T, ? extends K> classifier, T element) {
+        return Objects.requireNonNull(classifier.apply(element), "element cannot be mapped to a null key");
+    }
+
+    record Row(String category, String word, int store, double price) {}
+
+    static long time(Runnable body) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            body.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    static void report(String label, long jdk, long primitive) {
+        System.out.printf("  %-44s JDK %7.1f ms | primitive %7.1f ms | %.1fx%n",
+                label, jdk / 1e6, primitive / 1e6, jdk / (double) primitive);
+    }
+
+    static volatile Object sink;
+
+    // usage: java PrimitiveCollectors [rows]
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        Random random = new Random(21);
+        String[] categories = IntStream.range(0, 40).mapToObj(i -> "category-" + i).toArray(String[]::new);
+        String[] words = IntStream.range(0, 200_000).mapToObj(i -> "w" + Integer.toString(i, 36)).toArray(String[]::new);
+        List<Row> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            rows.add(new Row(categories[random.nextInt(categories.length)], words[random.nextInt(words.length)],
+                    random.nextInt(5_000), random.nextInt(100_000) / 100.0));
+        }
+
+        verify(rows);
+
+        System.out.printf("%,d rows, best of 5:%n", n);
+        for (boolean parallel : new boolean[] { false, true }) {
+            Supplier<Stream<Row>> stream = () -> parallel ? rows.parallelStream() : rows.stream();
+            String mode = parallel ? " (parallel)" : "";
+            report("count by category, 40 keys" + mode,
+                    time(() -> sink = stream.get().collect(Collectors.groupingBy(Row::category, Collectors.counting()))),
+                    time(() -> sink = stream.get().collect(groupingByToIntCount(Row::category))));
+            report("count by word, 200k keys" + mode,
+                    time(() -> sink = stream.get().collect(Collectors.groupingBy(Row::word, Collectors.counting()))),
+                    time(() -> sink = stream.get().collect(groupingByToIntCount(Row::word))));
+            report("count by int store id, 5k keys" + mode,
+                    time(() -> sink = stream.get().collect(Collectors.groupingBy(Row::store, Collectors.counting()))),
+                    time(() -> sink = stream.get().collect(groupingByIntKeyToIntCount(Row::store))));
+            report("sum price by category" + mode,
+                    time(() -> sink = stream.get().collect(Collectors.groupingBy(Row::category, Collectors.summingDouble(Row::price)))),
+                    time(() -> sink = stream.get().collect(summingDoubleByKey(Row::category, Row::price))));
+            report("partition count price > 500" + mode,
+                    time(() -> sink = stream.get().collect(Collectors.partitioningBy(r -> r.price() > 500, Collectors.counting()))),
+                    time(() -> sink = stream.get().collect(partitionCounts(r -> r.price() > 500))));
+        }
+    }
+
+    // every collector, sequential and parallel, against its JDK counterpart
+    static void verify(List<Row> rows) {
+        for (boolean parallel : new boolean[] { false, true }) {
+            Supplier<Stream<Row>> stream = () -> parallel ? rows.parallelStream() : rows.stream();
+
+            Map<String, Long> words = stream.get().collect(Collectors.groupingBy(Row::word, Collectors.counting()));
+            ObjectIntHashMap<String> wordCounts = stream.get().collect(groupingByToIntCount(Row::word));
+            boolean ok = words.size() == wordCounts.size();
+            for (Map.Entry<String, Long> e : words.entrySet()) ok &= wordCounts.getOrDefault(e.getKey(), -1) == e.getValue();
+
+            Map<Integer, Long> stores = stream.get().collect(Collectors.groupingBy(Row::store, Collectors.counting()));
+            IntIntHashMap storeCounts = stream.get().collect(groupingByIntKeyToIntCount(Row::store));
+            ok &= stores.size() == storeCounts.size();
+            for (Map.Entry<Integer, Long> e : stores.entrySet()) ok &= storeCounts.getOrDefault(e.getKey(), -1) == e.getValue();
+
+            Map<String, Double> sums = stream.get().collect(Collectors.groupingBy(Row::category, Collectors.summingDouble(Row::price)));
+            ObjectDoubleHashMap<String> priceSums = stream.get().collect(summingDoubleByKey(Row::category, Row::price));
+            ok &= sums.size() == priceSums.size();
+            for (Map.Entry<String, Double> e : sums.entrySet()) {
+                ok &= Math.abs(priceSums.getOrDefault(e.getKey(), -1) - e.getValue()) <= 1e-9 * Math.abs(e.getValue());
+            }
+
+            Map<Boolean, Long> split = stream.get().collect(Collectors.partitioningBy(r -> r.price() > 500, Collectors.counting()));
+            PartitionCounts partition = stream.get().collect(partitionCounts(r -> r.price() > 500));
+            ok &= partition.matching() == split.get(true) && partition.notMatching() == split.get(false)
+                    && partition.total() == rows.size();
+
+            if (!ok) throw new AssertionError("results differ from the JDK collectors" + (parallel ? " (parallel)" : ""));
+        }
+        System.out.println("same results as the JDK collectors, sequential and parallel: ok");
+    }
+}
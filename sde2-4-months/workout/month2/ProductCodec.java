@@ -0,0 +1,326 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+// Compact binary format for the product catalog, instead of ObjectOutputStream (W6_T2_P1).
+//
+// File layout:
+//   magic "PCAT" | version (varint) | field count (varint) | per field: name (string), type (byte)
+//   records : 1 | one value per field, in header order
+//   end     : 0
+//
+//   string = varint (byte length + 1, 0 = null) followed by the UTF-8 bytes
+//   int    = zig-zag varint (small prices take 1-2 bytes)
+//
+// The header carries the schema, so a reader can skip fields it does not know and fill in
+// fields the file does not have. No classes are instantiated from the stream, so unlike Java
+// serialization, reading an untrusted file can not run arbitrary code; lengths and counts are
+// checked against fixed limits and buffers only grow as bytes actually arrive, so a corrupt
+// file fails with an IOException rather than an OutOfMemoryError.
+// Both directions stream: maps with millions of entries never need to sit in memory twice.
+public class ProductCodec {
+
+    static final int MAGIC = 0x50434154; // "PCAT"
+    static final int VERSION = 1;
+
+    static final int MAX_FIELDS = 1 << 10;
+    static final int MAX_STRING_BYTES = 1 << 24;
+
+    static final byte TYPE_STRING = 1;
+    static final byte TYPE_INT = 2;
+
+    // field name -> type, in the order this version writes them
+    static final String[] FIELDS = { "key", "name", "price" };
+    static final byte[] TYPES = { TYPE_STRING, TYPE_STRING, TYPE_INT };
+
+    static final class Writer implements Closeable {
+        private final OutputStream out;
+        private byte[] scratch = new byte[256];
+        private long count;
+
+        Writer(OutputStream out) throws IOException {
+            this.out = out instanceof BufferedOutputStream ? out : new BufferedOutputStream(out, 1 << 16);
+            writeInt32(MAGIC);
+            writeVarint(VERSION);
+            writeVarint(FIELDS.length);
+            for (int f = 0; f < FIELDS.length; f++) {
+                writeString(FIELDS[f]);
+                this.out.write(TYPES[f]);
+            }
+        }
+
+        void write(String key, CatalogProduct product) throws IOException {
+            out.write(1);
+            writeString(key);
+            writeString(product.name);
+            writeVarint(zigZag(product.price));
+            count++;
+        }
+
+        long count() {
+            return count;
+        }
+
+        private void writeInt32(int v) throws IOException {
+            out.write(v >>> 24);
+            out.write(v >>> 16);
+            out.write(v >>> 8);
+            out.write(v);
+        }
+
+        private void writeVarint(long v) throws IOException {
+            while ((v & ~0x7FL) != 0) {
+                out.write((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            out.write((int) v);
+        }
+
+        private void writeString(String s) throws IOException {
+            if (s == null) {
+                writeVarint(0);
+                return;
+            }
+            // ASCII fast path: one byte per char, no intermediate byte[] from getBytes
+            int n = s.length();
+            if (scratch.length < n) scratch = new byte[Math.max(n, scratch.length * 2)];
+            int i = 0;
+            for (; i < n; i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) break;
+                scratch[i] = (byte) c;
+            }
+            if (i == n) {
+                writeVarint(n + 1L);
+                out.write(scratch, 0, n);
+            } else {
+                byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                writeVarint(utf8.length + 1L);
+                out.write(utf8);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.write(0);
+            out.close();
+        }
+    }
+
+    static final class Reader implements Closeable {
+        private final InputStream in;
+        private final int version;
+        private final String[] fields;
+        private final byte[] types;
+        // index into FIELDS for each field of the file, -1 for fields this version does not know
+        private final int[] slots;
+        private byte[] scratch = new byte[256];
+        private String key;
+        private CatalogProduct product;
+
+        Reader(InputStream in) throws IOException {
+            this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 1 << 16);
+            int magic = (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+            if (magic != MAGIC) {
+                throw new IOException("Not a product catalog file (bad magic " + Integer.toHexString(magic) + ")");
+            }
+            long fileVersion = readVarint();
+            if (fileVersion < 1 || fileVersion > VERSION) {
+                throw new IOException("Catalog version " + Long.toUnsignedString(fileVersion) + " is not supported (up to " + VERSION + ")");
+            }
+            version = (int) fileVersion;
+            long declaredFields = readVarint();
+            if (declaredFields < 0 || declaredFields > MAX_FIELDS) {
+                throw new StreamCorruptedException("Corrupt catalog: " + Long.toUnsignedString(declaredFields) + " fields");
+            }
+            int fieldCount = (int) declaredFields;
+            fields = new String[fieldCount];
+            types = new byte[fieldCount];
+            slots = new int[fieldCount];
+            for (int f = 0; f < fieldCount; f++) {
+                fields[f] = readString();
+                types[f] = (byte) readByte();
+                if (types[f] != TYPE_STRING && types[f] != TYPE_INT) {
+                    throw new IOException("Unknown type " + types[f] + " for field " + fields[f]);
+                }
+                slots[f] = Arrays.asList(FIELDS).indexOf(fields[f]);
+                if (slots[f] >= 0 && TYPES[slots[f]] != types[f]) {
+                    throw new IOException("Field " + fields[f] + " has type " + types[f] + ", expected " + TYPES[slots[f]]);
+                }
+            }
+        }
+
+        int version() {
+            return version;
+        }
+
+        // Moves to the next record; false at the end of the file
+        boolean next() throws IOException {
+            int tag = readByte();
+            if (tag == 0) return false;
+            if (tag != 1) throw new IOException("Corrupt catalog: unexpected record tag " + tag);
+
+            String k = null;
+            String name = null;
+            int price = 0;
+            for (int f = 0; f < fields.length; f++) {
+                switch (slots[f]) {
+                    case 0 -> k = readString();
+                    case 1 -> name = readString();
+                    case 2 -> price = unZigZag(readVarint());
+                    default -> skip(types[f]); // field from a newer writer
+                }
+            }
+            key = k;
+            product = new CatalogProduct(name, price);
+            return true;
+        }
+
+        String key() {
+            return key;
+        }
+
+        CatalogProduct product() {
+            return product;
+        }
+
+        private int readByte() throws IOException {
+            int b = in.read();
+            if (b < 0) throw new EOFException("Catalog file is truncated");
+            return b;
+        }
+
+        private long readVarint() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+            throw new IOException("Corrupt catalog: varint too long");
+        }
+
+        private void skip(byte type) throws IOException {
+            long n = readVarint();
+            if (type == TYPE_STRING && n > 0) {
+                in.skipNBytes(checkedLength(n));
+            }
+        }
+
+        // byte length of a string from its encoded varint (length + 1)
+        private static int checkedLength(long encoded) throws StreamCorruptedException {
+            long n = encoded - 1;
+            if (n < 0 || n > MAX_STRING_BYTES) {
+                throw new StreamCorruptedException("Corrupt catalog: string of " + Long.toUnsignedString(n) + " bytes");
+            }
+            return (int) n;
+        }
+
+        private String readString() throws IOException {
+            long encoded = readVarint();
+            if (encoded == 0) return null;
+            int n = checkedLength(encoded);
+            // grow with the data that actually arrives, not with the length the file claims
+            int read = 0;
+            while (read < n) {
+                if (scratch.length == read) scratch = Arrays.copyOf(scratch, Math.min(n, Math.max(read + (1 << 16), read * 2)));
+                int got = in.readNBytes(scratch, read, Math.min(n, scratch.length) - read);
+                if (got == 0) throw new EOFException("Catalog file is truncated");
+                read += got;
+            }
+            return new String(scratch, 0, n, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // 0, -1, 1, -2, ... -> 0, 1, 2, 3, ... so negative numbers stay short too
+    static long zigZag(int v) {
+        return Integer.toUnsignedLong((v << 1) ^ (v >> 31));
+    }
+
+    static int unZigZag(long v) {
+        int u = (int) v;
+        return (u >>> 1) ^ -(u & 1);
+    }
+
+    static void writeMap(Map<String, CatalogProduct> map, Path path) throws IOException {
+        try (Writer writer = new Writer(Files.newOutputStream(path))) {
+            for (Map.Entry<String, CatalogProduct> e : map.entrySet()) {
+                writer.write(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    // Streams every record without building a map
+    static void forEach(Path path, BiConsumer<String, CatalogProduct> action) throws IOException {
+        try (Reader reader = new Reader(Files.newInputStream(path))) {
+            while (reader.next()) {
+                action.accept(reader.key(), reader.product());
+            }
+        }
+    }
+
+    static Map<String, CatalogProduct> readMap(Path path) throws IOException {
+        Map<String, CatalogProduct> map = new HashMap<>();
+        forEach(path, map::put);
+        return map;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String[] names = { "Powder", "Oil", "Brush", "Soap", "Shampoo", "Toothpaste", "Café crème" };
+        Random random = new Random(5);
+        Map<String, CatalogProduct> catalog = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            catalog.put(Integer.toString(i), new CatalogProduct(names[random.nextInt(names.length)] + " " + i,
+                    random.nextInt(i % 100 == 0 ? 1_000_000 : 1_000)));
+        }
+
+        Path ser = Files.createTempFile("products", ".ser");
+        Path bin = Files.createTempFile("products", ".pcat");
+        try {
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(ser)))) {
+                    oos.writeObject(catalog);
+                }
+                long serWrite = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                Map<String, CatalogProduct> fromSer;
+                try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(ser)))) {
+                    fromSer = (Map<String, CatalogProduct>) ois.readObject();
+                }
+                long serRead = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                writeMap(catalog, bin);
+                long binWrite = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                Map<String, CatalogProduct> fromBin = readMap(bin);
+                long binRead = System.nanoTime() - start;
+
+                boolean same = fromBin.size() == catalog.size() && fromSer.size() == catalog.size()
+                        && catalog.entrySet().stream().allMatch(e -> {
+                            CatalogProduct p = fromBin.get(e.getKey());
+                            return p != null && p.price == e.getValue().price && p.name.equals(e.getValue().name);
+                        });
+                System.out.printf("%,d products | .ser %,d bytes, write %.0f ms, read %.0f ms | "
+                        + ".pcat %,d bytes, write %.0f ms, read %.0f ms | round trip ok: %b%n",
+                        n, Files.size(ser), serWrite / 1e6, serRead / 1e6,
+                        Files.size(bin), binWrite / 1e6, binRead / 1e6, same);
+            }
+        } finally {
+            Files.deleteIfExists(ser);
+            Files.deleteIfExists(bin);
+        }
+    }
+}
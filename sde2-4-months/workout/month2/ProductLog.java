@@ -0,0 +1,538 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+// Log-structured persistence for the product map: instead of rewriting products_map.ser after
+// every change (W6_T2_P1), each put/delete is appended to a segment file, so a write costs
+// O(change) instead of O(catalog).
+//
+// Directory layout:
+//   snapshot-<n>.pcat : full map in ProductCodec format, covering every segment before n
+//   segment-<n>.log   : records  int bodyLength | int crc32c(body) | body
+//                       body = op (1 = put, 2 = delete) | key | [name | zig-zag price]
+//
+// Durability: put/remove return once their record is fsync'd. Threads writing at the same time
+// share one fsync (group commit): whoever arrives while a sync is running waits for the next
+// one, which covers every record appended in between.
+//
+// Opening loads the newest snapshot and replays the segments after it. A torn record at the end
+// of the last segment (crash mid-write) fails its CRC and is cut off.
+// A background compactor rolls to a new segment and writes a fresh snapshot once enough closed
+// segments pile up, then deletes the files the snapshot replaced.
+public class ProductLog implements Closeable {
+
+    static final byte OP_PUT = 1;
+    static final byte OP_DELETE = 2;
+    static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    static final int DEFAULT_COMPACT_AFTER_SEGMENTS = 4;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final int compactAfterSegments;
+    private final ConcurrentHashMap<String, CatalogProduct> map = new ConcurrentHashMap<>();
+
+    // appends, segment rolls and map updates happen under this lock, so the map always matches log order
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private FileChannel segment;
+    private long segmentSeq;
+    private long segmentPos;
+    private final List<Long> closedSegments = new ArrayList<>();
+    private long forcedThrough = -1; // newest segment forced and closed by roll() or close()
+    private ByteBuffer encodeBuf = ByteBuffer.allocateDirect(1 << 16);
+    private final CRC32C crc = new CRC32C();
+    private long appended;
+
+    // group commit state
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private boolean syncing;
+    private long durable;
+    private final AtomicLong fsyncs = new AtomicLong();
+
+    private final ScheduledExecutorService compactor;
+    private final AtomicLong compactions = new AtomicLong();
+    private volatile boolean closed;
+
+    private ProductLog(Path dir, long segmentBytes, int compactAfterSegments) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.compactAfterSegments = compactAfterSegments;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "product-log-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    static ProductLog open(Path dir) throws IOException {
+        return open(dir, DEFAULT_SEGMENT_BYTES, DEFAULT_COMPACT_AFTER_SEGMENTS);
+    }
+
+    static ProductLog open(Path dir, long segmentBytes, int compactAfterSegments) throws IOException {
+        Files.createDirectories(dir);
+        ProductLog log = new ProductLog(dir, segmentBytes, compactAfterSegments);
+        log.recover();
+        log.compactor.scheduleWithFixedDelay(log::compactIfNeeded, 1, 1, TimeUnit.SECONDS);
+        return log;
+    }
+
+    // ---- reads ----
+
+    CatalogProduct get(String key) {
+        return map.get(key);
+    }
+
+    int size() {
+        return map.size();
+    }
+
+    // live, read-only view; writes must go through put/remove so they reach the log
+    Map<String, CatalogProduct> asMap() {
+        return Collections.unmodifiableMap(map);
+    }
+
+    // ---- writes ----
+
+    void put(String key, CatalogProduct product) throws IOException {
+        sync(append(OP_PUT, key, product));
+    }
+
+    void remove(String key) throws IOException {
+        sync(append(OP_DELETE, key, null));
+    }
+
+    // One batch, one fsync
+    void putAll(Map<String, CatalogProduct> products) throws IOException {
+        long last = 0;
+        for (Map.Entry<String, CatalogProduct> e : products.entrySet()) {
+            last = append(OP_PUT, e.getKey(), e.getValue());
+        }
+        sync(last);
+    }
+
+    // Writes the record and applies it to the map; returns its sequence number for sync()
+    private long append(byte op, String key, CatalogProduct product) throws IOException {
+        appendLock.lock();
+        try {
+            if (closed) throw new IOException("Product log is closed");
+            ByteBuffer record = encode(op, key, product);
+            if (segmentPos > 0 && segmentPos + record.remaining() > segmentBytes) {
+                roll();
+            }
+            while (record.hasRemaining()) {
+                segmentPos += segment.write(record, segmentPos);
+            }
+            if (op == OP_PUT) {
+                map.put(key, product);
+            } else {
+                map.remove(key);
+            }
+            return ++appended;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Returns once every record up to seq is on disk
+    private void sync(long seq) throws IOException {
+        syncLock.lock();
+        try {
+            while (durable < seq) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                long target;
+                long generation;
+                FileChannel channel;
+                appendLock.lock();
+                try {
+                    target = appended;
+                    generation = segmentSeq;
+                    channel = segment;
+                } finally {
+                    appendLock.unlock();
+                }
+                syncLock.unlock();
+                try {
+                    // records in older segments were forced when the segment was rolled
+                    channel.force(false);
+                    fsyncs.incrementAndGet();
+                } catch (ClosedChannelException e) {
+                    // a roll() or close() got in between; it forced this segment before closing it
+                    if (!isForced(generation)) throw e;
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                    synced.signalAll();
+                }
+                durable = Math.max(durable, target);
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private ByteBuffer encode(byte op, String key, CatalogProduct product) {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        byte[] name = product == null || product.name == null ? null : product.name.getBytes(StandardCharsets.UTF_8);
+        int max = 8 + 1 + 5 + k.length + 5 + (name == null ? 0 : name.length) + 5;
+        if (encodeBuf.capacity() < max) encodeBuf = ByteBuffer.allocateDirect(Integer.highestOneBit(max) << 1);
+
+        ByteBuffer buf = encodeBuf.clear();
+        buf.position(8);
+        buf.put(op);
+        putBytes(buf, k);
+        if (op == OP_PUT) {
+            putBytes(buf, name);
+            putVarint(buf, ProductCodec.zigZag(product.price));
+        }
+        int bodyLength = buf.position() - 8;
+        crc.reset();
+        crc.update(buf.slice(8, bodyLength));
+        buf.putInt(0, bodyLength).putInt(4, (int) crc.getValue());
+        return buf.flip();
+    }
+
+    private static void putBytes(ByteBuffer buf, byte[] bytes) {
+        if (bytes == null) {
+            putVarint(buf, 0);
+            return;
+        }
+        putVarint(buf, bytes.length + 1L);
+        buf.put(bytes);
+    }
+
+    private static void putVarint(ByteBuffer buf, long v) {
+        while ((v & ~0x7FL) != 0) {
+            buf.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+    }
+
+    private boolean isForced(long generation) {
+        appendLock.lock();
+        try {
+            return generation <= forcedThrough;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // caller holds appendLock
+    private void roll() throws IOException {
+        if (segment != null) {
+            segment.force(false);
+            forcedThrough = segmentSeq;
+            segment.close();
+            closedSegments.add(segmentSeq);
+        }
+        segmentSeq++;
+        segment = FileChannel.open(segmentPath(segmentSeq), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentPos = 0;
+    }
+
+    // ---- recovery ----
+
+    private void recover() throws IOException {
+        long snapshotSeq = -1;
+        TreeSet<Long> segments = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(file); // compaction interrupted by a crash
+                } else if (name.startsWith("snapshot-") && name.endsWith(".pcat")) {
+                    snapshotSeq = Math.max(snapshotSeq, seqOf(name, "snapshot-", ".pcat"));
+                } else if (name.startsWith("segment-") && name.endsWith(".log")) {
+                    segments.add(seqOf(name, "segment-", ".log"));
+                }
+            }
+        }
+
+        if (snapshotSeq >= 0) {
+            ProductCodec.forEach(snapshotPath(snapshotSeq), map::put);
+        }
+        for (Iterator<Long> it = segments.iterator(); it.hasNext();) {
+            long seq = it.next();
+            if (seq < snapshotSeq) {
+                Files.delete(segmentPath(seq)); // already folded into the snapshot
+                continue;
+            }
+            replay(segmentPath(seq), !it.hasNext());
+            closedSegments.add(seq);
+            segmentSeq = seq;
+        }
+        segmentSeq = Math.max(segmentSeq, snapshotSeq - 1);
+        // always start a fresh segment; the recovered ones are closed and left for the compactor
+        roll();
+    }
+
+    private void replay(Path file, boolean last) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+            long size = channel.size();
+            long pos = 0;
+            CRC32C check = new CRC32C();
+            byte[] body = new byte[256];
+            while (pos < size) {
+                boolean valid = size - pos >= 8;
+                int length = 0;
+                int expected = 0;
+                if (valid) {
+                    length = in.readInt();
+                    expected = in.readInt();
+                    valid = length > 0 && length <= size - pos - 8;
+                }
+                if (valid) {
+                    if (body.length < length) body = new byte[Math.max(length, body.length * 2)];
+                    in.readFully(body, 0, length);
+                    check.reset();
+                    check.update(body, 0, length);
+                    valid = (int) check.getValue() == expected;
+                }
+                if (!valid) {
+                    if (!last) throw new IOException("Corrupt record at " + pos + " in " + file);
+                    channel.truncate(pos); // torn write at the tail
+                    return;
+                }
+                apply(ByteBuffer.wrap(body, 0, length));
+                pos += 8 + length;
+            }
+        }
+    }
+
+    private void apply(ByteBuffer body) throws IOException {
+        byte op = body.get();
+        String key = getString(body);
+        if (op == OP_PUT) {
+            String name = getString(body);
+            map.put(key, new CatalogProduct(name, ProductCodec.unZigZag(getVarint(body))));
+        } else if (op == OP_DELETE) {
+            map.remove(key);
+        } else {
+            throw new IOException("Unknown log op " + op);
+        }
+    }
+
+    private static String getString(ByteBuffer buf) {
+        long encoded = getVarint(buf);
+        if (encoded == 0) return null;
+        int n = (int) (encoded - 1);
+        String s = new String(buf.array(), buf.arrayOffset() + buf.position(), n, StandardCharsets.UTF_8);
+        buf.position(buf.position() + n);
+        return s;
+    }
+
+    private static long getVarint(ByteBuffer buf) {
+        long result = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buf.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+        }
+    }
+
+    // ---- compaction ----
+
+    private void compactIfNeeded() {
+        try {
+            boolean due;
+            appendLock.lock();
+            try {
+                due = !closed && closedSegments.size() >= compactAfterSegments;
+            } finally {
+                appendLock.unlock();
+            }
+            if (due) compact();
+        } catch (IOException e) {
+            System.err.println("ProductLog compaction failed: " + e.getMessage());
+        }
+    }
+
+    // Writes a snapshot that replaces every closed segment.
+    // The map is copied after the roll, so anything the copy misses is in the new active segment,
+    // and replaying that segment over the snapshot gives the same result either way.
+    // The folded segments stay listed as closed until the snapshot is in place, so a failed
+    // snapshot is simply retried by the next compaction.
+    void compact() throws IOException {
+        long snapshotSeq;
+        List<Long> folded;
+        appendLock.lock();
+        try {
+            if (closed) return;
+            roll();
+            snapshotSeq = segmentSeq;
+            folded = new ArrayList<>(closedSegments);
+        } finally {
+            appendLock.unlock();
+        }
+
+        Path tmp = dir.resolve("snapshot-" + snapshotSeq + ".pcat.tmp");
+        try {
+            try (ProductCodec.Writer writer = new ProductCodec.Writer(Files.newOutputStream(tmp))) {
+                for (Map.Entry<String, CatalogProduct> e : map.entrySet()) {
+                    writer.write(e.getKey(), e.getValue());
+                }
+            }
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.force(false);
+            }
+            Files.move(tmp, snapshotPath(snapshotSeq), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        appendLock.lock();
+        try {
+            closedSegments.removeAll(folded);
+        } finally {
+            appendLock.unlock();
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "snapshot-*.pcat")) {
+            for (Path file : files) {
+                if (seqOf(file.getFileName().toString(), "snapshot-", ".pcat") < snapshotSeq) Files.delete(file);
+            }
+        }
+        for (long seq : folded) {
+            Files.deleteIfExists(segmentPath(seq));
+        }
+        compactions.incrementAndGet();
+    }
+
+    long fsyncCount() {
+        return fsyncs.get();
+    }
+
+    long compactionCount() {
+        return compactions.get();
+    }
+
+    private Path segmentPath(long seq) {
+        return dir.resolve(String.format("segment-%010d.log", seq));
+    }
+
+    private Path snapshotPath(long seq) {
+        return dir.resolve(String.format("snapshot-%010d.pcat", seq));
+    }
+
+    private static long seqOf(String name, String prefix, String suffix) {
+        return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        appendLock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            segment.force(false);
+            forcedThrough = segmentSeq;
+            segment.close();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Path dir = Files.createTempDirectory("product-log");
+        Path ser = dir.resolve("products_map.ser");
+        try {
+            Map<String, CatalogProduct> catalog = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                catalog.put(Integer.toString(i), new CatalogProduct("Product " + i, i % 1000));
+            }
+
+            // the old way: every change rewrites the whole file
+            int serUpdates = 5;
+            long start = System.nanoTime();
+            for (int i = 0; i < serUpdates; i++) {
+                catalog.put(Integer.toString(i), new CatalogProduct("Updated " + i, i));
+                try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(ser)))) {
+                    oos.writeObject(catalog);
+                }
+                try (FileChannel channel = FileChannel.open(ser, StandardOpenOption.WRITE)) {
+                    channel.force(false);
+                }
+            }
+            System.out.printf("rewrite .ser  : %.2f ms per change (%,d products)%n",
+                    (System.nanoTime() - start) / 1e6 / serUpdates, n);
+
+            Path logDir = dir.resolve("log");
+            try (ProductLog log = open(logDir, 4L << 20, 2)) {
+                start = System.nanoTime();
+                log.putAll(catalog);
+                System.out.printf("initial load  : %.0f ms, %d fsync%n", (System.nanoTime() - start) / 1e6, log.fsyncCount());
+
+                int updates = 500;
+                long fsyncsBefore = log.fsyncCount();
+                start = System.nanoTime();
+                for (int i = 0; i < updates; i++) {
+                    log.put(Integer.toString(i), new CatalogProduct("Changed " + i, i * 2));
+                }
+                System.out.printf("log, 1 thread : %.3f ms per change, %d fsyncs%n",
+                        (System.nanoTime() - start) / 1e6 / updates, log.fsyncCount() - fsyncsBefore);
+
+                int threads = 8;
+                fsyncsBefore = log.fsyncCount();
+                ExecutorService pool = Executors.newFixedThreadPool(threads);
+                start = System.nanoTime();
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int id = t;
+                    futures.add(pool.submit(() -> {
+                        for (int i = 0; i < updates; i++) {
+                            log.put("t" + id + "-" + i, new CatalogProduct("Thread " + id, i));
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> f : futures) f.get();
+                pool.shutdown();
+                System.out.printf("log, %d threads: %.3f ms per change, %d fsyncs for %,d changes (group commit)%n",
+                        threads, (System.nanoTime() - start) / 1e6 / (threads * updates),
+                        log.fsyncCount() - fsyncsBefore, threads * updates);
+
+                log.remove("1");
+                log.compact();
+                log.put("2", new CatalogProduct("After compaction", 7));
+                System.out.println("files after compaction: " + listing(logDir));
+            }
+
+            try (ProductLog reopened = open(logDir)) {
+                System.out.printf("replayed %,d products: 0=%s 1=%s 2=%s%n", reopened.size(),
+                        reopened.get("0"), reopened.get("1"), reopened.get("2"));
+            }
+        } finally {
+            try (var walk = Files.walk(dir)) {
+                walk.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private static List<String> listing(Path dir) throws IOException {
+        try (var files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString()).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,367 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Read-optimised product catalog: the file is memory-mapped and queried in place, so opening it
+// costs the same for 4 products as for 100M, and nothing is deserialised onto the heap
+// (compare loading products_map.ser in W6_T2_P1).
+//
+// File layout (all numbers big-endian):
+//   header  : magic "PSTO", version, record count, slot count, section offsets   (64 bytes)
+//   index   : slotCount x { int hash, int record + 1 }   open addressing, 0 = empty slot
+//   records : count x { long keyOffset, long nameOffset, int keyLength, int nameLength, int price, pad }
+//   strings : UTF-8 bytes of every key and name, referenced by offset
+//
+// Every int/long sits at an offset that is a multiple of its size and the file is mapped in
+// 1 GB windows, so a number never crosses from one window into the next. Only strings can,
+// and they are read with a split copy.
+public class ProductStore implements Closeable {
+
+    static final int MAGIC = 0x5053544F; // "PSTO"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int SLOT_BYTES = 8;
+    static final int RECORD_BYTES = 32;
+    static final int WINDOW_SHIFT = 30;
+
+    // A long-addressed view over one section of the file, made of 1 GB mappings
+    static final class Region {
+        final MappedByteBuffer[] windows;
+        final long size;
+
+        Region(FileChannel channel, FileChannel.MapMode mode, long start, long size) throws IOException {
+            this.size = size;
+            int count = (int) ((size + (1L << WINDOW_SHIFT) - 1) >>> WINDOW_SHIFT);
+            windows = new MappedByteBuffer[Math.max(count, 1)];
+            for (int w = 0; w < windows.length; w++) {
+                long offset = (long) w << WINDOW_SHIFT;
+                windows[w] = channel.map(mode, start + offset, Math.min(1L << WINDOW_SHIFT, size - offset));
+            }
+        }
+
+        int getInt(long pos) {
+            return windows[(int) (pos >>> WINDOW_SHIFT)].getInt((int) (pos & ((1L << WINDOW_SHIFT) - 1)));
+        }
+
+        long getLong(long pos) {
+            return windows[(int) (pos >>> WINDOW_SHIFT)].getLong((int) (pos & ((1L << WINDOW_SHIFT) - 1)));
+        }
+
+        void putInt(long pos, int value) {
+            windows[(int) (pos >>> WINDOW_SHIFT)].putInt((int) (pos & ((1L << WINDOW_SHIFT) - 1)), value);
+        }
+
+        void get(long pos, byte[] dst, int length) {
+            int done = 0;
+            while (done < length) {
+                long p = pos + done;
+                MappedByteBuffer window = windows[(int) (p >>> WINDOW_SHIFT)];
+                int offset = (int) (p & ((1L << WINDOW_SHIFT) - 1));
+                int n = Math.min(length - done, window.limit() - offset);
+                window.get(offset, dst, done, n);
+                done += n;
+            }
+        }
+
+        byte get(long pos) {
+            return windows[(int) (pos >>> WINDOW_SHIFT)].get((int) (pos & ((1L << WINDOW_SHIFT) - 1)));
+        }
+    }
+
+    private final FileChannel channel;
+    private final long count;
+    private final long slotMask;
+    private final Region index;
+    private final Region records;
+    private final Region strings;
+
+    private ProductStore(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+            throw new IOException("Not a product store file");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported product store version " + version);
+        }
+        count = header.getLong();
+        long slots = header.getLong();
+        long indexStart = header.getLong();
+        long recordsStart = header.getLong();
+        long stringsStart = header.getLong();
+        long stringsSize = header.getLong();
+        checkLayout(channel.size(), slots, indexStart, recordsStart, stringsStart, stringsSize);
+
+        slotMask = slots - 1;
+        index = new Region(channel, FileChannel.MapMode.READ_ONLY, indexStart, slots * SLOT_BYTES);
+        records = new Region(channel, FileChannel.MapMode.READ_ONLY, recordsStart, count * RECORD_BYTES);
+        strings = new Region(channel, FileChannel.MapMode.READ_ONLY, stringsStart, stringsSize);
+    }
+
+    // A corrupt header would otherwise map past the end of the file, or leave find() probing a
+    // table with no empty slot forever. Each size is checked against the file before it is
+    // multiplied, so none of the section arithmetic can overflow.
+    private void checkLayout(long fileSize, long slots, long indexStart, long recordsStart,
+                             long stringsStart, long stringsSize) throws IOException {
+        if (count < 0 || count > Integer.MAX_VALUE - 1) {
+            throw new StreamCorruptedException("Corrupt product store: " + count + " records");
+        }
+        if (slots < 2 || Long.bitCount(slots) != 1 || slots <= count || slots > fileSize / SLOT_BYTES) {
+            throw new StreamCorruptedException("Corrupt product store: " + slots + " index slots for " + count + " records");
+        }
+        if (indexStart != HEADER_BYTES
+                || recordsStart != indexStart + slots * SLOT_BYTES
+                || stringsStart != recordsStart + count * RECORD_BYTES
+                || stringsSize < 0 || stringsSize > fileSize - stringsStart) {
+            throw new StreamCorruptedException("Corrupt product store: sections do not fit a " + fileSize + " byte file");
+        }
+    }
+
+    static ProductStore open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new ProductStore(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    long size() {
+        return count;
+    }
+
+    // Record number for key, or -1
+    long find(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(bytes);
+        long slot = hash & slotMask;
+        while (true) {
+            long pos = slot * SLOT_BYTES;
+            int recordPlusOne = index.getInt(pos + 4);
+            if (recordPlusOne == 0) return -1;
+            if (index.getInt(pos) == hash && keyEquals(recordPlusOne - 1L, bytes)) {
+                return recordPlusOne - 1L;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    private boolean keyEquals(long record, byte[] key) {
+        long base = record * RECORD_BYTES;
+        if (records.getInt(base + 16) != key.length) return false;
+        long offset = records.getLong(base);
+        for (int i = 0; i < key.length; i++) {
+            if (strings.get(offset + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    int priceAt(long record) {
+        return records.getInt(record * RECORD_BYTES + 24);
+    }
+
+    String nameAt(long record) {
+        return string(records.getLong(record * RECORD_BYTES + 8), records.getInt(record * RECORD_BYTES + 20));
+    }
+
+    String keyAt(long record) {
+        return string(records.getLong(record * RECORD_BYTES), records.getInt(record * RECORD_BYTES + 16));
+    }
+
+    private String string(long offset, int length) {
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        strings.get(offset, bytes, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // price without touching the name; OptionalInt.empty() for an unknown key
+    OptionalInt price(String key) {
+        long record = find(key);
+        return record < 0 ? OptionalInt.empty() : OptionalInt.of(priceAt(record));
+    }
+
+    CatalogProduct get(String key) {
+        long record = find(key);
+        return record < 0 ? null : new CatalogProduct(nameAt(record), priceAt(record));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // polynomial hash over the UTF-8 bytes, finished with the murmur3 mixer
+    static int hash(byte[] bytes) {
+        int h = 0;
+        for (byte b : bytes) h = 31 * h + b;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    // Builds a store from entries; count must be the exact number of entries
+    static void write(Path path, long count, Iterable<Map.Entry<String, CatalogProduct>> entries) throws IOException {
+        if (count >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("At most " + (Integer.MAX_VALUE - 1) + " products per store");
+        }
+        long slots = Long.highestOneBit(Math.max(2, count * 2 - 1)) << 1; // load factor <= 0.5
+        long indexStart = HEADER_BYTES;
+        long recordsStart = indexStart + slots * SLOT_BYTES;
+        long stringsStart = recordsStart + count * RECORD_BYTES;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            // the index is filled through a writable mapping, so even 100M slots never sit on the heap
+            Region index = new Region(channel, FileChannel.MapMode.READ_WRITE, indexStart, slots * SLOT_BYTES);
+            ByteBuffer recordBuf = ByteBuffer.allocateDirect(RECORD_BYTES * 8192);
+            ByteBuffer stringBuf = ByteBuffer.allocateDirect(1 << 20);
+            long recordPos = recordsStart;
+            long stringPos = stringsStart;
+            long stringOffset = 0;
+            long written = 0;
+
+            for (Map.Entry<String, CatalogProduct> e : entries) {
+                if (written == count) {
+                    throw new IllegalArgumentException("More entries than the declared count " + count);
+                }
+                byte[] key = e.getKey().getBytes(StandardCharsets.UTF_8);
+                CatalogProduct p = e.getValue();
+                byte[] name = p.name == null ? null : p.name.getBytes(StandardCharsets.UTF_8);
+
+                long keyOffset = stringOffset;
+                stringPos = put(channel, stringBuf, stringPos, key);
+                stringOffset += key.length;
+                long nameOffset = stringOffset;
+                if (name != null) {
+                    stringPos = put(channel, stringBuf, stringPos, name);
+                    stringOffset += name.length;
+                }
+
+                if (recordBuf.remaining() < RECORD_BYTES) {
+                    recordPos = drain(channel, recordBuf, recordPos);
+                }
+                recordBuf.putLong(keyOffset).putLong(nameOffset).putInt(key.length)
+                        .putInt(name == null ? -1 : name.length).putInt(p.price).putInt(0);
+
+                int hash = hash(key);
+                long slot = hash & (slots - 1);
+                while (index.getInt(slot * SLOT_BYTES + 4) != 0) {
+                    slot = (slot + 1) & (slots - 1);
+                }
+                index.putInt(slot * SLOT_BYTES, hash);
+                index.putInt(slot * SLOT_BYTES + 4, (int) (written + 1));
+                written++;
+            }
+            if (written != count) {
+                throw new IllegalArgumentException("Declared " + count + " entries but got " + written);
+            }
+            drain(channel, recordBuf, recordPos);
+            drain(channel, stringBuf, stringPos);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(count).putLong(slots)
+                    .putLong(indexStart).putLong(recordsStart).putLong(stringsStart).putLong(stringOffset);
+            header.clear();
+            channel.write(header, 0);
+            for (MappedByteBuffer window : index.windows) {
+                window.force();
+            }
+        }
+    }
+
+    static void write(Path path, Map<String, CatalogProduct> map) throws IOException {
+        write(path, map.size(), map.entrySet());
+    }
+
+    private static long put(FileChannel channel, ByteBuffer buf, long pos, byte[] bytes) throws IOException {
+        int done = 0;
+        while (done < bytes.length) {
+            if (!buf.hasRemaining()) pos = drain(channel, buf, pos);
+            int n = Math.min(buf.remaining(), bytes.length - done);
+            buf.put(bytes, done, n);
+            done += n;
+        }
+        return pos;
+    }
+
+    private static long drain(FileChannel channel, ByteBuffer buf, long pos) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            pos += channel.write(buf, pos);
+        }
+        buf.clear();
+        return pos;
+    }
+
+    // usage: java ProductStore [count]
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Map<String, CatalogProduct> catalog = new HashMap<>();
+        Random random = new Random(9);
+        for (int i = 0; i < n; i++) {
+            catalog.put("P" + i, new CatalogProduct("Product " + i, random.nextInt(10_000)));
+        }
+
+        Path ser = Files.createTempFile("products", ".ser");
+        Path store = Files.createTempFile("products", ".psto");
+        try {
+            try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(ser)))) {
+                oos.writeObject(catalog);
+            }
+            long start = System.nanoTime();
+            write(store, catalog);
+            System.out.printf("built store for %,d products in %.0f ms (%,d bytes)%n",
+                    n, (System.nanoTime() - start) / 1e6, Files.size(store));
+            catalog = null;
+
+            start = System.nanoTime();
+            Map<String, CatalogProduct> loaded;
+            try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(ser)))) {
+                loaded = (Map<String, CatalogProduct>) ois.readObject();
+            }
+            CatalogProduct fromSer = loaded.get("P42");
+            System.out.printf(".ser  : first lookup after %.1f ms -> %s%n", (System.nanoTime() - start) / 1e6, fromSer);
+
+            start = System.nanoTime();
+            try (ProductStore products = open(store)) {
+                CatalogProduct fromStore = products.get("P42");
+                System.out.printf("store : first lookup after %.1f ms -> %s%n", (System.nanoTime() - start) / 1e6, fromStore);
+
+                int lookups = 2_000_000;
+                long sum = 0;
+                start = System.nanoTime();
+                for (int i = 0; i < lookups; i++) {
+                    sum += products.price("P" + random.nextInt(n)).orElse(0);
+                }
+                System.out.printf("store : %,d random price lookups, %.0f ns each (checksum %d)%n",
+                        lookups, (System.nanoTime() - start) / (double) lookups, sum);
+
+                boolean consistent = true;
+                for (int i = 0; i < 1000; i++) {
+                    String key = "P" + random.nextInt(n);
+                    CatalogProduct a = loaded.get(key);
+                    CatalogProduct b = products.get(key);
+                    consistent &= a.price == b.price && a.name.equals(b.name);
+                }
+                System.out.println("matches deserialised map: " + consistent + ", missing key -> " + products.get("nope"));
+            }
+        } finally {
+            Files.deleteIfExists(ser);
+            Files.deleteIfExists(store);
+        }
+    }
+}
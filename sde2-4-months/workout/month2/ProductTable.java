@@ -0,0 +1,233 @@
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+// Column-oriented product table for aggregations over many rows.
+//
+// groupingBy(Product::getCategory) in W7_T2_P4 builds a List of objects per category and every
+// aggregate then chases a pointer per product. Here each attribute is its own array:
+//   category : int[]     dictionary-encoded id (the strings are stored once, in `categories`)
+//   price    : double[]
+//   name     : UTF-8 bytes in one byte[] heap, int[] offsets into it (names are rarely aggregated)
+// A group-by then streams over two primitive arrays: no objects, no hashing per row, and each
+// core works on its own block of rows with a small array of accumulators per category.
+public class ProductTable {
+
+    record CategoryStats(String category, long count, double sum, double min, double max) {
+        double avg() {
+            return count == 0 ? Double.NaN : sum / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s{count=%d, sum=%.2f, avg=%.2f, min=%.2f, max=%.2f}",
+                    category, count, sum, avg(), min, max);
+        }
+    }
+
+    // rows per parallel task; big enough that merging the per-task accumulators is noise
+    static final int BLOCK_ROWS = 1 << 20;
+
+    private final int size;
+    private final int[] categoryIds;
+    private final double[] prices;
+    private final byte[] nameHeap;
+    private final int[] nameOffsets; // size + 1 entries, name i = [offsets[i], offsets[i + 1])
+    private final String[] categories;
+
+    private ProductTable(int size, int[] categoryIds, double[] prices, byte[] nameHeap, int[] nameOffsets,
+            String[] categories) {
+        this.size = size;
+        this.categoryIds = categoryIds;
+        this.prices = prices;
+        this.nameHeap = nameHeap;
+        this.nameOffsets = nameOffsets;
+        this.categories = categories;
+    }
+
+    static final class Builder {
+        private int size;
+        private int[] categoryIds;
+        private double[] prices;
+        private int[] nameOffsets;
+        private byte[] nameHeap = new byte[1 << 12];
+        private int heapSize;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> categories = new ArrayList<>();
+
+        Builder() {
+            this(16);
+        }
+
+        // presizing avoids the copies (and the 2x memory peak) of growing 100M-row columns
+        Builder(int expectedRows) {
+            categoryIds = new int[Math.max(1, expectedRows)];
+            prices = new double[Math.max(1, expectedRows)];
+            nameOffsets = new int[Math.max(1, expectedRows) + 1];
+        }
+
+        // name may be null when only the numbers matter
+        Builder add(String name, String category, double price) {
+            if (size == categoryIds.length) {
+                int capacity = Math.max(size + 1, (int) Math.min(Integer.MAX_VALUE - 8, size * 2L));
+                categoryIds = Arrays.copyOf(categoryIds, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+            }
+            Integer id = dictionary.get(category);
+            if (id == null) {
+                id = categories.size();
+                dictionary.put(category, id);
+                categories.add(category);
+            }
+            categoryIds[size] = id;
+            prices[size] = price;
+            if (name != null) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                if (heapSize + (long) bytes.length > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Name heap is full (2 GB)");
+                }
+                if (heapSize + bytes.length > nameHeap.length) {
+                    nameHeap = Arrays.copyOf(nameHeap, (int) Math.min(Integer.MAX_VALUE - 8,
+                            Math.max(heapSize + bytes.length, nameHeap.length * 2L)));
+                }
+                System.arraycopy(bytes, 0, nameHeap, heapSize, bytes.length);
+                heapSize += bytes.length;
+            }
+            size++;
+            nameOffsets[size] = heapSize;
+            return this;
+        }
+
+        ProductTable build() {
+            return new ProductTable(size, categoryIds, prices, Arrays.copyOf(nameHeap, heapSize), nameOffsets,
+                    categories.toArray(new String[0]));
+        }
+    }
+
+    // Any row type works, e.g. fromRows(products, Product::getName, Product::getCategory, Product::getPrice)
+    static <R> ProductTable fromRows(Collection<? extends R> rows, Function<? super R, String> name,
+            Function<? super R, String> category, ToDoubleFunction<? super R> price) {
+        Builder builder = new Builder(rows.size());
+        for (R row : rows) {
+            builder.add(name.apply(row), category.apply(row), price.applyAsDouble(row));
+        }
+        return builder.build();
+    }
+
+    int size() {
+        return size;
+    }
+
+    String name(int row) {
+        return new String(nameHeap, nameOffsets[row], nameOffsets[row + 1] - nameOffsets[row], StandardCharsets.UTF_8);
+    }
+
+    String category(int row) {
+        return categories[categoryIds[row]];
+    }
+
+    double price(int row) {
+        return prices[row];
+    }
+
+    // Accumulators for one block of rows, indexed by category id
+    private static final class Partial {
+        final long[] count;
+        final double[] sum;
+        final double[] min;
+        final double[] max;
+
+        Partial(int categories) {
+            count = new long[categories];
+            sum = new double[categories];
+            min = new double[categories];
+            max = new double[categories];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        }
+
+        Partial merge(Partial other) {
+            for (int c = 0; c < count.length; c++) {
+                count[c] += other.count[c];
+                sum[c] += other.sum[c];
+                min[c] = Math.min(min[c], other.min[c]);
+                max[c] = Math.max(max[c], other.max[c]);
+            }
+            return this;
+        }
+    }
+
+    private Partial aggregateBlock(int from, int to) {
+        Partial p = new Partial(categories.length);
+        int[] ids = categoryIds;
+        double[] values = prices;
+        long[] count = p.count;
+        double[] sum = p.sum;
+        double[] min = p.min;
+        double[] max = p.max;
+        for (int i = from; i < to; i++) {
+            int c = ids[i];
+            double v = values[i];
+            count[c]++;
+            sum[c] += v;
+            if (v < min[c]) min[c] = v;
+            if (v > max[c]) max[c] = v;
+        }
+        return p;
+    }
+
+    // count/sum/avg/min/max of price per category, in order of first appearance
+    List<CategoryStats> groupByCategory() {
+        return groupByCategory(true);
+    }
+
+    List<CategoryStats> groupByCategory(boolean parallel) {
+        int blocks = Math.max(1, (size + BLOCK_ROWS - 1) / BLOCK_ROWS);
+        IntStream range = IntStream.range(0, blocks);
+        if (parallel) range = range.parallel();
+        Partial total = range
+                .mapToObj(b -> aggregateBlock(b * BLOCK_ROWS, (int) Math.min(size, (long) (b + 1) * BLOCK_ROWS)))
+                .reduce(Partial::merge)
+                .orElseGet(() -> new Partial(categories.length));
+
+        List<CategoryStats> result = new ArrayList<>(categories.length);
+        for (int c = 0; c < categories.length; c++) {
+            if (total.count[c] == 0) continue;
+            result.add(new CategoryStats(categories[c], total.count[c], total.sum[c], total.min[c], total.max[c]));
+        }
+        return result;
+    }
+
+    // usage: java -Xmx3g ProductTable [rows]
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000_000;
+        String[] categories = { "Electronics", "Books", "Toys", "Garden", "Grocery", "Sports", "Beauty", "Music" };
+        Random random = new Random(21);
+
+        long start = System.nanoTime();
+        Builder builder = new Builder(rows);
+        for (int i = 0; i < rows; i++) {
+            // names only for the first rows: 100M distinct strings would not fit the demo heap
+            builder.add(i < 1_000_000 ? "Product " + i : null,
+                    categories[random.nextInt(categories.length)], random.nextInt(1_000_000) / 100.0);
+        }
+        ProductTable table = builder.build();
+        System.out.printf("built %,d rows in %.0f ms, row 42 = %s / %s / %.2f%n", rows,
+                (System.nanoTime() - start) / 1e6, table.name(42), table.category(42), table.price(42));
+
+        for (int round = 0; round < 5; round++) {
+            start = System.nanoTime();
+            List<CategoryStats> sequential = table.groupByCategory(false);
+            long sequentialNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            List<CategoryStats> parallel = table.groupByCategory(true);
+            long parallelNanos = System.nanoTime() - start;
+            System.out.printf("group-by %,d rows: sequential %.0f ms, parallel %.0f ms (%d cores)%n", rows,
+                    sequentialNanos / 1e6, parallelNanos / 1e6, Runtime.getRuntime().availableProcessors());
+            if (round == 4) parallel.forEach(s -> System.out.println("  " + s));
+        }
+    }
+}
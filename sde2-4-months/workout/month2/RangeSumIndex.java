@@ -0,0 +1,181 @@
+import java.util.*;
+import java.util.stream.IntStream;
+
+// Answers "sum of arr[start..end]" (inclusive, like ArraySumTask in W5_T2_P1) without rescanning the slice.
+//
+//  - Static  : prefix sums, built in parallel, O(1) per query, array must not change
+//  - Fenwick : binary indexed tree, O(log n) per query and per point update
+//
+// sums(...) answers a whole batch of ranges in parallel. For Fenwick the batch must not
+// overlap with updates (reads and writes are not synchronised with each other).
+public abstract class RangeSumIndex {
+
+    abstract int length();
+
+    abstract long sum(int start, int end);
+
+    static RangeSumIndex ofStatic(int[] arr) {
+        return new Static(arr);
+    }
+
+    static Fenwick ofUpdatable(int[] arr) {
+        return new Fenwick(arr);
+    }
+
+    // Batch of queries: result[i] = sum(starts[i], ends[i])
+    long[] sums(int[] starts, int[] ends) {
+        if (starts.length != ends.length) {
+            throw new IllegalArgumentException("starts and ends differ in length");
+        }
+        long[] result = new long[starts.length];
+        IntStream.range(0, starts.length).parallel().forEach(i -> result[i] = sum(starts[i], ends[i]));
+        return result;
+    }
+
+    void checkRange(int start, int end) {
+        if (start < 0 || end >= length() || start > end + 1) {
+            throw new IndexOutOfBoundsException("Range (" + start + "," + end + ") out of bounds for length " + length());
+        }
+    }
+
+    static final class Static extends RangeSumIndex {
+        // prefix[i] = arr[0] + ... + arr[i-1]
+        private final long[] prefix;
+
+        Static(int[] arr) {
+            prefix = new long[arr.length + 1];
+            Arrays.parallelSetAll(prefix, i -> i == 0 ? 0 : arr[i - 1]);
+            Arrays.parallelPrefix(prefix, Long::sum);
+        }
+
+        @Override
+        int length() {
+            return prefix.length - 1;
+        }
+
+        @Override
+        long sum(int start, int end) {
+            checkRange(start, end);
+            return prefix[end + 1] - prefix[start];
+        }
+    }
+
+    static final class Fenwick extends RangeSumIndex {
+        // 1-based tree: tree[i] covers (i - lowbit(i), i]
+        private final long[] tree;
+        private final int[] values;
+
+        Fenwick(int[] arr) {
+            values = arr.clone();
+            tree = new long[arr.length + 1];
+            // O(n) build: push every node into its parent once
+            for (int i = 1; i <= arr.length; i++) {
+                tree[i] += arr[i - 1];
+                int parent = i + (i & -i);
+                if (parent <= arr.length) {
+                    tree[parent] += tree[i];
+                }
+            }
+        }
+
+        @Override
+        int length() {
+            return values.length;
+        }
+
+        // arr[0..end-1]
+        private long prefix(int end) {
+            long s = 0;
+            for (int i = end; i > 0; i -= i & -i) {
+                s += tree[i];
+            }
+            return s;
+        }
+
+        @Override
+        long sum(int start, int end) {
+            checkRange(start, end);
+            return prefix(end + 1) - prefix(start);
+        }
+
+        // delta is a long: the difference of two ints (see set) does not always fit an int.
+        // The element itself must stay an int; a sum outside int range throws before anything changes.
+        void add(int index, long delta) {
+            Objects.checkIndex(index, values.length);
+            values[index] = Math.toIntExact(values[index] + delta);
+            for (int i = index + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        void set(int index, int value) {
+            Objects.checkIndex(index, values.length);
+            add(index, (long) value - values[index]);
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+    }
+
+    static long scanSum(int[] arr, int start, int end) {
+        long s = 0;
+        for (int j = start; j <= end; j++) s += arr[j];
+        return s;
+    }
+
+    public static void main(String[] args) {
+        int n = 10_000_000;
+        int[] arr = new int[n];
+        Random random = new Random(42);
+        for (int i = 0; i < n; i++) {
+            arr[i] = random.nextInt(1_000);
+        }
+
+        int queries = 5_000_000;
+        int[] starts = new int[queries];
+        int[] ends = new int[queries];
+        for (int q = 0; q < queries; q++) {
+            int a = random.nextInt(n);
+            int b = random.nextInt(n);
+            starts[q] = Math.min(a, b);
+            ends[q] = Math.max(a, b);
+        }
+
+        long start = System.nanoTime();
+        RangeSumIndex prefix = ofStatic(arr);
+        System.out.printf("prefix build   : %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+        start = System.nanoTime();
+        Fenwick fenwick = ofUpdatable(arr);
+        System.out.printf("fenwick build  : %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+        start = System.nanoTime();
+        long[] fromPrefix = prefix.sums(starts, ends);
+        System.out.printf("%,d prefix queries  : %.1f ms%n", queries, (System.nanoTime() - start) / 1e6);
+
+        start = System.nanoTime();
+        long[] fromFenwick = fenwick.sums(starts, ends);
+        System.out.printf("%,d fenwick queries : %.1f ms%n", queries, (System.nanoTime() - start) / 1e6);
+
+        // rescanning: only a sample, a full run would take minutes
+        int sample = 200;
+        start = System.nanoTime();
+        for (int q = 0; q < sample; q++) {
+            if (scanSum(arr, starts[q], ends[q]) != fromPrefix[q] || fromPrefix[q] != fromFenwick[q]) {
+                throw new AssertionError("Mismatch at query " + q);
+            }
+        }
+        System.out.printf("%d rescans        : %.1f ms (all answers match)%n", sample, (System.nanoTime() - start) / 1e6);
+
+        // point updates keep the Fenwick index current
+        fenwick.set(10, 5_000);
+        fenwick.add(n - 1, 7);
+        fenwick.set(0, -1);
+        fenwick.set(0, Integer.MAX_VALUE); // the difference does not fit an int
+        arr[10] = 5_000;
+        arr[n - 1] += 7;
+        arr[0] = Integer.MAX_VALUE;
+        System.out.println("after updates  : " + (fenwick.sum(0, n - 1) == scanSum(arr, 0, n - 1)));
+    }
+}
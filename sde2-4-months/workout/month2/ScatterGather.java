@@ -0,0 +1,124 @@
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+// Scatter a batch of tasks, gather their results in completion order.
+//  - a slow task never blocks results that are already done (unlike looping over future.get())
+//  - the first failure is rethrown right away and every sibling is cancelled (interrupted)
+//  - one deadline covers the whole batch, not each task
+// By default every task gets its own virtual thread; the executor is closed before returning,
+// so no task outlives the call.
+public class ScatterGather {
+
+    static <T> List<T> gather(List<? extends Callable<T>> tasks, Duration timeout)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return gather(tasks, timeout, null);
+    }
+
+    static <T> List<T> gather(List<? extends Callable<T>> tasks, Duration timeout, Consumer<? super T> onResult)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            return gather(executor, tasks, timeout, onResult);
+        }
+    }
+
+    // Same thing on a caller-owned pool (e.g. an InstrumentedThreadPool); the pool is not shut down
+    static <T> List<T> gather(ExecutorService executor, List<? extends Callable<T>> tasks, Duration timeout)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return gather(executor, tasks, timeout, null);
+    }
+
+    static <T> List<T> gather(ExecutorService executor, List<? extends Callable<T>> tasks, Duration timeout,
+            Consumer<? super T> onResult) throws InterruptedException, ExecutionException, TimeoutException {
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        CompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        List<T> results = new ArrayList<>(tasks.size());
+        boolean finished = false;
+
+        try {
+            for (Callable<T> task : tasks) {
+                futures.add(completion.submit(task));
+            }
+
+            for (int received = 0; received < futures.size(); received++) {
+                Future<T> next = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    throw new TimeoutException("Deadline of " + timeout + " exceeded, "
+                            + (futures.size() - received) + " of " + futures.size() + " tasks still running");
+                }
+
+                // get() on a completed future does not block; a failed task throws here (fail fast)
+                T result = next.get();
+                results.add(result);
+                if (onResult != null) {
+                    onResult.accept(result);
+                }
+            }
+            finished = true;
+            return results;
+        } finally {
+            // timeout, failure, interrupt or rejected submit : stop the siblings
+            if (!finished) {
+                for (Future<T> f : futures) {
+                    f.cancel(true);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] arr = new int[1_000];
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = i + 1;
+        }
+
+        // 1. partitions finish out of order, results are consumed as they arrive
+        int parts = 5;
+        int partitionSize = arr.length / parts;
+        List<Callable<Long>> sums = new ArrayList<>();
+        for (int i = 0; i < parts; i++) {
+            int start = i * partitionSize;
+            int end = (i == parts - 1) ? arr.length - 1 : start + partitionSize - 1;
+            int delay = (parts - i) * 50;
+            sums.add(() -> {
+                Thread.sleep(delay);
+                long sum = 0;
+                for (int j = start; j <= end; j++) sum += arr[j];
+                return sum;
+            });
+        }
+        long total = 0;
+        for (long partial : gather(sums, Duration.ofSeconds(2),
+                partial -> System.out.println("received partial sum " + partial))) {
+            total += partial;
+        }
+        System.out.println("Total = " + total);
+
+        // 2. one failing task cancels the rest immediately
+        List<Callable<Long>> withFailure = List.of(
+                () -> { Thread.sleep(5_000); return 1L; },
+                () -> { throw new IllegalArgumentException("Number must be non-negative."); },
+                () -> { Thread.sleep(5_000); return 2L; });
+        long start = System.nanoTime();
+        try {
+            gather(withFailure, Duration.ofSeconds(10));
+        } catch (ExecutionException e) {
+            System.out.printf("Failed fast after %d ms : %s%n",
+                    (System.nanoTime() - start) / 1_000_000, e.getCause());
+        }
+
+        // 3. deadline for the whole batch
+        List<Callable<Long>> slow = List.of(
+                () -> 1L,
+                () -> { Thread.sleep(5_000); return 2L; });
+        start = System.nanoTime();
+        try {
+            gather(slow, Duration.ofMillis(200));
+        } catch (TimeoutException e) {
+            System.out.printf("Timed out after %d ms : %s%n", (System.nanoTime() - start) / 1_000_000, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,421 @@
+import java.util.*;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.*;
+import java.util.stream.IntStream;
+
+// max / min / top-K for large collections and arrays (W7_T1_P2.findMax at scale).
+//
+// Generic inputs are folded over their Spliterator: a fork/join task keeps splitting off halves
+// until the pieces are small, each piece is scanned sequentially into its own accumulator (the
+// best element so far, or a bounded heap of the k best), and the accumulators are merged pairwise
+// on the way back. Below PARALLEL_THRESHOLD elements everything runs on the calling thread, where
+// task overhead would cost more than it saves.
+//
+// Ties keep the element that comes first, like findMax. top-K results are sorted best first, equal
+// elements in encounter order. int/long/double arrays have their own loops so nothing is boxed
+// (and equal values are interchangeable); double uses Double.compare order (NaN is the largest
+// value, -0.0 < 0.0).
+public class Selection {
+
+    static final int PARALLEL_THRESHOLD = 1 << 15;
+    static final int LEAF_SIZE = 1 << 12;
+
+    // Fold of a spliterator: each leaf accumulates into its own A, results are combined left to right
+    @SuppressWarnings("serial") // never serialized; the lambdas it holds are not serializable anyway
+    private static final class FoldTask<T, A> extends RecursiveTask<A> {
+        private final Spliterator<T> spliterator;
+        private final Supplier<A> init;
+        private final BiConsumer<A, ? super T> accumulate;
+        private final BinaryOperator<A> combine;
+
+        FoldTask(Spliterator<T> spliterator, Supplier<A> init, BiConsumer<A, ? super T> accumulate,
+                BinaryOperator<A> combine) {
+            this.spliterator = spliterator;
+            this.init = init;
+            this.accumulate = accumulate;
+            this.combine = combine;
+        }
+
+        @Override
+        protected A compute() {
+            Spliterator<T> prefix;
+            if (spliterator.estimateSize() > LEAF_SIZE && (prefix = spliterator.trySplit()) != null) {
+                FoldTask<T, A> left = new FoldTask<>(prefix, init, accumulate, combine);
+                left.fork();
+                A right = new FoldTask<>(spliterator, init, accumulate, combine).compute();
+                return combine.apply(left.join(), right);
+            }
+            A acc = init.get();
+            spliterator.forEachRemaining(t -> accumulate.accept(acc, t));
+            return acc;
+        }
+    }
+
+    private static <T, A> A fold(Spliterator<T> spliterator, Supplier<A> init, BiConsumer<A, ? super T> accumulate,
+            BinaryOperator<A> combine) {
+        if (spliterator.estimateSize() < PARALLEL_THRESHOLD) {
+            A acc = init.get();
+            spliterator.forEachRemaining(t -> accumulate.accept(acc, t));
+            return acc;
+        }
+        return new FoldTask<>(spliterator, init, accumulate, combine).invoke();
+    }
+
+    // ---- max / min ----
+
+    private static final class Best<T> {
+        T value;
+        boolean present;
+    }
+
+    static <T> Optional<T> max(Collection<? extends T> items, Comparator<? super T> comparator) {
+        return best(items.spliterator(), comparator);
+    }
+
+    static <T extends Comparable<? super T>> Optional<T> max(Collection<? extends T> items) {
+        return max(items, Comparator.naturalOrder());
+    }
+
+    static <T> Optional<T> min(Collection<? extends T> items, Comparator<? super T> comparator) {
+        return max(items, comparator.reversed());
+    }
+
+    static <T extends Comparable<? super T>> Optional<T> min(Collection<? extends T> items) {
+        return min(items, Comparator.naturalOrder());
+    }
+
+    static <T> Optional<T> max(T[] items, Comparator<? super T> comparator) {
+        return best(Arrays.spliterator(items), comparator);
+    }
+
+    static <T> Optional<T> min(T[] items, Comparator<? super T> comparator) {
+        return max(items, comparator.reversed());
+    }
+
+    private static <T> Optional<T> best(Spliterator<? extends T> spliterator, Comparator<? super T> comparator) {
+        Best<T> best = fold(spliterator, Best::new, (b, t) -> {
+            if (!b.present || comparator.compare(t, b.value) > 0) {
+                b.value = t;
+                b.present = true;
+            }
+        }, (left, right) -> right.present && (!left.present || comparator.compare(right.value, left.value) > 0)
+                ? right : left);
+        return best.present ? Optional.ofNullable(best.value) : Optional.empty();
+    }
+
+    // ---- top-K ----
+
+    // An element and its position among the elements offered, so equal elements keep encounter order
+    private record Ranked<T>(T value, long index) {}
+
+    // The k best seen so far; the root of the min-heap is the worst of them, the one to replace.
+    // Of two equal elements the later one counts as worse.
+    private static final class BoundedHeap<T> {
+        final PriorityQueue<Ranked<T>> heap;
+        final int k;
+        final Comparator<? super T> comparator;
+        final Comparator<Ranked<T>> worstFirst;
+        long seen; // elements offered, the next one's index
+
+        BoundedHeap(int k, Comparator<? super T> comparator) {
+            this.k = k;
+            this.comparator = comparator;
+            this.worstFirst = (a, b) -> {
+                int c = comparator.compare(a.value(), b.value());
+                return c != 0 ? c : Long.compare(b.index(), a.index());
+            };
+            this.heap = new PriorityQueue<>(Math.min(k, 1 << 16) + 1, worstFirst);
+        }
+
+        // t comes after everything in the heap, so it has to be strictly better than the root
+        void offer(T t) {
+            long index = seen++;
+            if (heap.size() < k) {
+                heap.add(new Ranked<>(t, index));
+            } else if (comparator.compare(t, heap.peek().value()) > 0) {
+                heap.poll();
+                heap.add(new Ranked<>(t, index));
+            }
+        }
+
+        private void offer(Ranked<T> r) {
+            if (heap.size() < k) {
+                heap.add(r);
+            } else if (worstFirst.compare(r, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(r);
+            }
+        }
+
+        // this covers the elements before other's: other's indexes move up past ours
+        BoundedHeap<T> merge(BoundedHeap<T> other) {
+            for (Ranked<T> r : other.heap) offer(new Ranked<>(r.value(), seen + r.index()));
+            seen += other.seen;
+            return this;
+        }
+
+        List<T> sortedBestFirst() {
+            List<Ranked<T>> ranked = new ArrayList<>(heap);
+            ranked.sort(worstFirst.reversed());
+            List<T> out = new ArrayList<>(ranked.size());
+            for (Ranked<T> r : ranked) out.add(r.value());
+            return out;
+        }
+    }
+
+    // The k largest elements, largest first
+    static <T> List<T> topK(Collection<? extends T> items, int k, Comparator<? super T> comparator) {
+        if (k <= 0) return List.of();
+        Spliterator<? extends T> spliterator = items.spliterator();
+        BoundedHeap<T> heap = fold(spliterator, () -> new BoundedHeap<T>(k, comparator), BoundedHeap::offer,
+                BoundedHeap::merge);
+        return heap.sortedBestFirst();
+    }
+
+    static <T extends Comparable<? super T>> List<T> topK(Collection<? extends T> items, int k) {
+        return topK(items, k, Comparator.naturalOrder());
+    }
+
+    // The k smallest elements, smallest first
+    static <T> List<T> bottomK(Collection<? extends T> items, int k, Comparator<? super T> comparator) {
+        return topK(items, k, comparator.reversed());
+    }
+
+    // ---- primitive arrays ----
+
+    private static int chunks(int length) {
+        return length < PARALLEL_THRESHOLD ? 1 : (length + LEAF_SIZE * 16 - 1) / (LEAF_SIZE * 16);
+    }
+
+    private static IntStream chunkStream(int length) {
+        IntStream s = IntStream.range(0, chunks(length));
+        return length < PARALLEL_THRESHOLD ? s : s.parallel();
+    }
+
+    private static int chunkStart(int chunk, int length) {
+        return (int) ((long) chunk * length / chunks(length));
+    }
+
+    static OptionalInt max(int[] a) {
+        if (a.length == 0) return OptionalInt.empty();
+        return OptionalInt.of(chunkStream(a.length).map(c -> {
+            int best = Integer.MIN_VALUE;
+            for (int i = chunkStart(c, a.length), end = chunkStart(c + 1, a.length); i < end; i++) {
+                best = Math.max(best, a[i]);
+            }
+            return best;
+        }).max().getAsInt());
+    }
+
+    static OptionalInt min(int[] a) {
+        if (a.length == 0) return OptionalInt.empty();
+        return OptionalInt.of(chunkStream(a.length).map(c -> {
+            int best = Integer.MAX_VALUE;
+            for (int i = chunkStart(c, a.length), end = chunkStart(c + 1, a.length); i < end; i++) {
+                best = Math.min(best, a[i]);
+            }
+            return best;
+        }).min().getAsInt());
+    }
+
+    static OptionalLong max(long[] a) {
+        if (a.length == 0) return OptionalLong.empty();
+        return OptionalLong.of(chunkStream(a.length).mapToLong(c -> {
+            long best = Long.MIN_VALUE;
+            for (int i = chunkStart(c, a.length), end = chunkStart(c + 1, a.length); i < end; i++) {
+                best = Math.max(best, a[i]);
+            }
+            return best;
+        }).max().getAsLong());
+    }
+
+    static OptionalLong min(long[] a) {
+        if (a.length == 0) return OptionalLong.empty();
+        return OptionalLong.of(chunkStream(a.length).mapToLong(c -> {
+            long best = Long.MAX_VALUE;
+            for (int i = chunkStart(c, a.length), end = chunkStart(c + 1, a.length); i < end; i++) {
+                best = Math.min(best, a[i]);
+            }
+            return best;
+        }).min().getAsLong());
+    }
+
+    static OptionalDouble max(double[] a) {
+        if (a.length == 0) return OptionalDouble.empty();
+        return OptionalDouble.of(sortableToDouble(chunkStream(a.length).mapToLong(c -> {
+            long best = Long.MIN_VALUE;
+            for (int i = chunkStart(c, a.length), end = chunkStart(c + 1, a.length); i < end; i++) {
+                best = Math.max(best, doubleToSortable(a[i]));
+            }
+            return best;
+        }).max().getAsLong()));
+    }
+
+    static OptionalDouble min(double[] a) {
+        if (a.length == 0) return OptionalDouble.empty();
+        return OptionalDouble.of(sortableToDouble(chunkStream(a.length).mapToLong(c -> {
+            long best = Long.MAX_VALUE;
+            for (int i = chunkStart(c, a.length), end = chunkStart(c + 1, a.length); i < end; i++) {
+                best = Math.min(best, doubleToSortable(a[i]));
+            }
+            return best;
+        }).min().getAsLong()));
+    }
+
+    // A long whose signed order is Double.compare order: flip the magnitude bits of negative values
+    static long doubleToSortable(double d) {
+        long bits = Double.doubleToLongBits(d);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    static double sortableToDouble(long sortable) {
+        return Double.longBitsToDouble(sortable ^ ((sortable >> 63) & Long.MAX_VALUE));
+    }
+
+    // Min-heap of at most k longs in one array; the int and double versions reuse it.
+    // The array starts at the expected size (a chunk never holds more than its length) and only
+    // grows towards k when merged heaps need it, so a large k does not cost k longs per chunk.
+    private static final class LongTopK {
+        final int k;
+        long[] heap;
+        int size;
+
+        LongTopK(int k, int expected) {
+            this.k = k;
+            heap = new long[Math.min(k, expected)];
+        }
+
+        void offer(long v) {
+            if (size < k) {
+                if (size == heap.length) heap = Arrays.copyOf(heap, (int) Math.min(k, Math.max(16, 2L * size)));
+                int i = size++;
+                while (i > 0) { // sift up
+                    int parent = (i - 1) >>> 1;
+                    if (heap[parent] <= v) break;
+                    heap[i] = heap[parent];
+                    i = parent;
+                }
+                heap[i] = v;
+            } else if (v > heap[0]) {
+                int i = 0; // replace the root and sift down
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) break;
+                    if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+                    if (heap[child] >= v) break;
+                    heap[i] = heap[child];
+                    i = child;
+                }
+                heap[i] = v;
+            }
+        }
+
+        // equal longs can not be told apart, so either side may absorb the other
+        LongTopK merge(LongTopK other) {
+            if (other.size > size) return other.merge(this); // offer the smaller heap into the larger
+            for (int i = 0; i < other.size; i++) offer(other.heap[i]);
+            return this;
+        }
+
+        long[] sortedDescending() {
+            long[] out = Arrays.copyOf(heap, size);
+            Arrays.sort(out);
+            for (int i = 0, j = out.length - 1; i < j; i++, j--) {
+                long t = out[i];
+                out[i] = out[j];
+                out[j] = t;
+            }
+            return out;
+        }
+    }
+
+    private static LongTopK topKSortable(int length, int k, IntToLongFunction value) {
+        return chunkStream(length).mapToObj(c -> {
+            int start = chunkStart(c, length), end = chunkStart(c + 1, length);
+            LongTopK heap = new LongTopK(k, end - start);
+            for (int i = start; i < end; i++) {
+                heap.offer(value.applyAsLong(i));
+            }
+            return heap;
+        }).reduce(LongTopK::merge).orElseGet(() -> new LongTopK(k, 0));
+    }
+
+    // The k largest values, largest first
+    static long[] topK(long[] a, int k) {
+        if (k <= 0) return new long[0];
+        return topKSortable(a.length, Math.min(k, a.length), i -> a[i]).sortedDescending();
+    }
+
+    static int[] topK(int[] a, int k) {
+        if (k <= 0) return new int[0];
+        long[] top = topKSortable(a.length, Math.min(k, a.length), i -> a[i]).sortedDescending();
+        int[] out = new int[top.length];
+        for (int i = 0; i < top.length; i++) out[i] = (int) top[i];
+        return out;
+    }
+
+    static double[] topK(double[] a, int k) {
+        if (k <= 0) return new double[0];
+        long[] top = topKSortable(a.length, Math.min(k, a.length), i -> doubleToSortable(a[i])).sortedDescending();
+        double[] out = new double[top.length];
+        for (int i = 0; i < top.length; i++) out[i] = sortableToDouble(top[i]);
+        return out;
+    }
+
+    static volatile Object sink;
+
+    // usage: java Selection [elements]
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        Random random = new Random(8);
+        int[] ints = random.ints(n).toArray();
+        double[] doubles = random.doubles(n).map(d -> d * 2 - 1).toArray();
+        List<Integer> boxed = new ArrayList<>(n);
+        for (int v : ints) boxed.add(v);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 1_000_000; i++) words.add(Integer.toString(random.nextInt(), 36));
+
+        // correctness against sorting
+        int[] sorted = ints.clone();
+        Arrays.sort(sorted);
+        int[] top = topK(ints, 5);
+        boolean ok = top[0] == sorted[n - 1] && top[4] == sorted[n - 5]
+                && max(ints).getAsInt() == sorted[n - 1] && min(ints).getAsInt() == sorted[0]
+                && max(boxed).get() == sorted[n - 1]
+                && topK(boxed, 5).equals(Arrays.stream(top).boxed().toList())
+                && max(doubles).getAsDouble() == Arrays.stream(doubles).max().getAsDouble()
+                && topK(doubles, 1)[0] == max(doubles).getAsDouble()
+                && Selection.<String>max(words).get().equals(Collections.max(words))
+                && Double.compare(max(new double[] { -0.0, 0.0, -1 }).getAsDouble(), 0.0) == 0
+                && Double.compare(min(new double[] { 0.0, -0.0, 1 }).getAsDouble(), -0.0) == 0;
+        ok &= W7_T1_P2.findMax(boxed).equals(sorted[n - 1]);
+        // 8 distinct keys: which of the equal elements are kept, and their order, is a stable sort's
+        Comparator<Integer> lowBits = Comparator.comparingInt(v -> v & 7);
+        ok &= topK(boxed, 25, lowBits).equals(boxed.stream().sorted(lowBits.reversed()).limit(25).toList());
+        System.out.println("matches sort/Collections.max: " + ok);
+        System.out.println("top 3 words: " + topK(words, 3) + ", small list max: " + max(List.of(1, 2, 17, 13)).get());
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            Integer scanned = boxed.get(0); // the sequential compareTo scan of findMax
+            for (Integer v : boxed) if (v.compareTo(scanned) > 0) scanned = v;
+            sink = scanned;
+            long findMax = System.nanoTime() - start;
+            start = System.nanoTime();
+            sink = max(boxed);
+            long generic = System.nanoTime() - start;
+            start = System.nanoTime();
+            sink = max(ints);
+            long primitive = System.nanoTime() - start;
+            start = System.nanoTime();
+            sink = topK(boxed, 100, Comparator.naturalOrder());
+            long topGeneric = System.nanoTime() - start;
+            start = System.nanoTime();
+            sink = topK(ints, 100);
+            long topPrimitive = System.nanoTime() - start;
+            System.out.printf("%,d elements | sequential scan %.1f ms | max(List) %.1f ms | max(int[]) %.1f ms | "
+                    + "top-100 List %.1f ms | top-100 int[] %.1f ms%n", n, findMax / 1e6, generic / 1e6,
+                    primitive / 1e6, topGeneric / 1e6, topPrimitive / 1e6);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+// Word count for a file that keeps growing (a log): instead of rescanning it from the start
+// (W6_T1_P3.countWords / MappedWordCounter), only the bytes appended since the last call are read.
+//
+// The state between calls is just the byte offset reached, the count so far and whether the last
+// byte was whitespace -- a word cut off at the end of the previous read is then continued, not
+// counted twice. The state is checkpointed to a small file, so a restart resumes where it stopped.
+//
+// follow() waits for appends with a WatchService on the parent directory, and also polls at the
+// given interval because some file systems (network mounts, macOS) do not deliver change events.
+// A file that got shorter than the offset was truncated, and one with a different file key
+// (inode) was rotated -- even if the new file has already grown past the offset; both are counted
+// from the start. The key is checkpointed too, so a rotation during a restart is caught as well.
+public class TailWordCounter implements Closeable {
+
+    static final int BUFFER_BYTES = 1 << 20;
+    static final int CHECKPOINT_MAGIC = 0x54574332; // "TWC2"
+
+    private final Path file;
+    private final Path checkpoint;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private long offset;
+    private long words;
+    private int prevWs = 1;
+    private String fileKey; // identity of the file counted so far, null if unknown
+    private volatile boolean stopped;
+
+    TailWordCounter(Path file, Path checkpoint) throws IOException {
+        this.file = file;
+        this.checkpoint = checkpoint;
+        if (checkpoint != null && Files.exists(checkpoint)) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(checkpoint))) {
+                int magic = in.readInt();
+                if (magic != CHECKPOINT_MAGIC) {
+                    throw new IOException("Not a checkpoint file: " + checkpoint);
+                }
+                offset = in.readLong();
+                words = in.readLong();
+                prevWs = in.readBoolean() ? 1 : 0;
+                if (in.readBoolean()) fileKey = in.readUTF();
+            }
+        }
+    }
+
+    TailWordCounter(Path file) throws IOException {
+        this(file, file.resolveSibling(file.getFileName() + ".wordcount"));
+    }
+
+    // synchronized: poll() updates both from the follow() thread
+    synchronized long words() {
+        return words;
+    }
+
+    synchronized long offset() {
+        return offset;
+    }
+
+    // Counts the bytes appended since the last call; returns the number of new words
+    synchronized long poll() throws IOException {
+        long before = words;
+        // read before opening: if the file is rotated in between, the next poll sees a new key
+        Object key = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+        String currentKey = key == null ? null : key.toString();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            boolean reset = size < offset || currentKey != null && fileKey != null && !currentKey.equals(fileKey);
+            fileKey = currentKey;
+            if (reset) {
+                offset = 0;
+                words = 0;
+                prevWs = 1;
+                before = 0;
+            } else if (size == offset) {
+                return 0;
+            }
+
+            int[] whitespace = MappedWordCounter.WHITESPACE;
+            long count = 0;
+            int prev = prevWs;
+            while (offset < size) {
+                buffer.clear();
+                buffer.limit((int) Math.min(BUFFER_BYTES, size - offset));
+                int n = channel.read(buffer, offset);
+                if (n <= 0) break;
+                for (int i = 0; i < n; i++) {
+                    int ws = whitespace[buffer.get(i) & 0xFF];
+                    count += prev & (ws ^ 1);
+                    prev = ws;
+                }
+                offset += n;
+            }
+            words += count;
+            prevWs = prev;
+        }
+        saveCheckpoint();
+        return words - before;
+    }
+
+    // Written to a temp file and moved over the old one, so a crash never leaves half a checkpoint
+    private void saveCheckpoint() throws IOException {
+        if (checkpoint == null) return;
+        Path tmp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp))) {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeLong(offset);
+            out.writeLong(words);
+            out.writeBoolean(prevWs == 1);
+            out.writeBoolean(fileKey != null);
+            if (fileKey != null) out.writeUTF(fileKey);
+        }
+        Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Blocks until stop()/close() or interrupt, calling onUpdate with the total after every change
+    void follow(Duration pollInterval, LongConsumer onUpdate) throws IOException, InterruptedException {
+        Path dir = file.toAbsolutePath().getParent();
+        try (WatchService watcher = dir.getFileSystem().newWatchService()) {
+            dir.register(watcher, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+            if (pollIfPresent() > 0) onUpdate.accept(words());
+            while (!stopped) {
+                WatchKey key = watcher.poll(pollInterval.toNanos(), TimeUnit.NANOSECONDS);
+                if (key != null) {
+                    key.pollEvents(); // which file changed does not matter, poll() is cheap when nothing did
+                    key.reset();
+                }
+                if (pollIfPresent() > 0) onUpdate.accept(words());
+            }
+        }
+    }
+
+    // Between a rotation's rename and the new file's creation there is no file: not an error, the
+    // next round counts the new one. Checking Files.exists first would still race with the rename.
+    private long pollIfPresent() throws IOException {
+        try {
+            return poll();
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    // usage: java TailWordCounter
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("tail-wordcount");
+        Path log = dir.resolve("app.log");
+        Path checkpoint = dir.resolve("app.log.wordcount");
+        try {
+            MappedWordCounter.createTextFile(log, 64L << 20);
+
+            TailWordCounter counter = new TailWordCounter(log, checkpoint);
+            long start = System.nanoTime();
+            counter.poll();
+            System.out.printf("initial scan : %,d words in %.1f ms%n", counter.words(), (System.nanoTime() - start) / 1e6);
+
+            Thread follower = new Thread(() -> {
+                try {
+                    counter.follow(Duration.ofMillis(200), total -> {});
+                } catch (IOException | InterruptedException e) {
+                    System.err.println("follow stopped: " + e);
+                }
+            }, "tail-follower");
+            follower.start();
+
+            // an application appending lines, sometimes cutting a word in half between writes
+            try (Writer writer = Files.newBufferedWriter(log, StandardOpenOption.APPEND)) {
+                for (int i = 0; i < 50; i++) {
+                    writer.write("request " + i + " served in " + (i % 7) + " ms by work");
+                    writer.flush();
+                    Thread.sleep(10);
+                    writer.write("er-" + (i % 4) + "\n");
+                    writer.flush();
+                }
+            }
+            Thread.sleep(500);
+            counter.stop();
+            follower.join();
+
+            start = System.nanoTime();
+            long rescan = MappedWordCounter.countWords(log);
+            long rescanNanos = System.nanoTime() - start;
+            System.out.printf("followed     : %,d words | full rescan %,d words in %.1f ms | match %b%n",
+                    counter.words(), rescan, rescanNanos / 1e6, counter.words() == rescan);
+
+            // restart: resumes from the checkpoint, reads only what was appended meanwhile
+            Files.writeString(log, "one more line after the restart\n", StandardOpenOption.APPEND);
+            TailWordCounter restarted = new TailWordCounter(log, checkpoint);
+            long resumedAt = restarted.offset();
+            start = System.nanoTime();
+            long added = restarted.poll();
+            System.out.printf("restarted    : resumed at offset %,d, +%d words in %.3f ms, total %,d (match %b)%n",
+                    resumedAt, added, (System.nanoTime() - start) / 1e6, restarted.words(),
+                    restarted.words() == MappedWordCounter.countWords(log));
+        } finally {
+            Files.deleteIfExists(log);
+            Files.deleteIfExists(checkpoint);
+            Files.deleteIfExists(dir);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Directory-tree versions of W6_T1_P2 (copy) and W6_T1_P3 (word count).
+//
+// One thread walks the tree; every regular file becomes a task on its own virtual thread.
+// A semaphore caps how many files are open at once, so the walker blocks instead of running
+// out of file descriptors, and the number of threads stops being the limit: while one virtual
+// thread waits for the disk, its carrier runs another.
+// File I/O goes through AsynchronousFileChannel; the virtual thread simply waits on the Future.
+//
+// A failing file is counted and remembered (first few errors), it does not stop the walk; a
+// directory that can not be read or created is recorded the same way and its subtree skipped.
+public class TreeProcessor {
+
+    static final int DEFAULT_CONCURRENCY = 256;
+    static final int MAX_BUFFER_BYTES = 256 * 1024;
+    static final int MAX_ERRORS_KEPT = 10;
+
+    // per-file work; returns the number of words for counting, 0 otherwise
+    interface FileTask {
+        long process(Path file, long size) throws IOException, InterruptedException;
+    }
+
+    record Result(long files, long bytes, long words, long failures, List<String> errors, long elapsedNanos) {
+        @Override
+        public String toString() {
+            return String.format("%,d files, %,d bytes, %,d words, %d failures in %.1f ms",
+                    files, bytes, words, failures, elapsedNanos / 1e6);
+        }
+    }
+
+    static Result copyTree(Path source, Path target) throws IOException, InterruptedException {
+        return copyTree(source, target, DEFAULT_CONCURRENCY);
+    }
+
+    static Result copyTree(Path source, Path target, int concurrency) throws IOException, InterruptedException {
+        // a target inside the source would be walked into and copied again, level after level
+        if (realPath(target).startsWith(realPath(source))) {
+            throw new IllegalArgumentException("Target " + target + " lies inside source " + source);
+        }
+        // directories are created by the walker, before any file task that needs them is started
+        return walk(source, concurrency,
+                dir -> Files.createDirectories(target.resolve(source.relativize(dir))),
+                (file, size) -> {
+                    copyFile(file, target.resolve(source.relativize(file)), size);
+                    return 0;
+                });
+    }
+
+    // Absolute path with symlinks resolved up to the nearest ancestor that exists
+    private static Path realPath(Path path) throws IOException {
+        Path absolute = path.toAbsolutePath().normalize();
+        Path existing = absolute;
+        while (existing != null && !Files.exists(existing)) existing = existing.getParent();
+        return existing == null ? absolute : existing.toRealPath().resolve(existing.relativize(absolute));
+    }
+
+    static Result countWords(Path root) throws IOException, InterruptedException {
+        return countWords(root, DEFAULT_CONCURRENCY);
+    }
+
+    static Result countWords(Path root, int concurrency) throws IOException, InterruptedException {
+        return walk(root, concurrency, dir -> {}, (file, size) -> countWords(file, size));
+    }
+
+    interface DirectoryTask {
+        void enter(Path dir) throws IOException;
+    }
+
+    static Result walk(Path root, int concurrency, DirectoryTask onDirectory, FileTask task)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Semaphore permits = new Semaphore(concurrency);
+        LongAdder files = new LongAdder();
+        LongAdder bytes = new LongAdder();
+        LongAdder words = new LongAdder();
+        LongAdder failures = new LongAdder();
+        Queue<String> errors = new ConcurrentLinkedQueue<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    try {
+                        onDirectory.enter(dir);
+                    } catch (IOException e) {
+                        fail(failures, errors, dir, e);
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (!attrs.isRegularFile()) return FileVisitResult.CONTINUE;
+                    try {
+                        permits.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return FileVisitResult.TERMINATE;
+                    }
+                    long size = attrs.size();
+                    executor.execute(() -> {
+                        try {
+                            words.add(task.process(file, size));
+                            files.increment();
+                            bytes.add(size);
+                        } catch (Exception e) {
+                            fail(failures, errors, file, e);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    fail(failures, errors, file, e);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                // a directory whose listing broke off part way; the default would end the walk
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                    if (e != null) fail(failures, errors, dir, e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } // close() waits for every submitted file
+        if (Thread.interrupted()) throw new InterruptedException();
+
+        return new Result(files.sum(), bytes.sum(), words.sum(), failures.sum(),
+                List.copyOf(errors), System.nanoTime() - start);
+    }
+
+    private static void fail(LongAdder failures, Queue<String> errors, Path file, Exception e) {
+        failures.increment();
+        if (errors.size() < MAX_ERRORS_KEPT) errors.add(file + ": " + e);
+    }
+
+    static void copyFile(Path source, Path target, long size) throws IOException, InterruptedException {
+        try (AsynchronousFileChannel in = AsynchronousFileChannel.open(source, StandardOpenOption.READ);
+             AsynchronousFileChannel out = AsynchronousFileChannel.open(target, StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocate((int) Math.max(1, Math.min(size, MAX_BUFFER_BYTES)));
+            long position = 0;
+            while (true) {
+                int n = await(in.read(buf, position));
+                if (n < 0) break;
+                buf.flip();
+                while (buf.hasRemaining()) {
+                    await(out.write(buf, position + buf.position()));
+                }
+                position += n;
+                buf.clear();
+            }
+        }
+    }
+
+    // Same rule as MappedWordCounter: count non-whitespace bytes that follow whitespace
+    static long countWords(Path file, long size) throws IOException, InterruptedException {
+        int[] whitespace = MappedWordCounter.WHITESPACE;
+        try (AsynchronousFileChannel in = AsynchronousFileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate((int) Math.max(1, Math.min(size, MAX_BUFFER_BYTES)));
+            byte[] bytes = buf.array();
+            long position = 0;
+            long count = 0;
+            int prevWs = 1;
+            int n;
+            while ((n = await(in.read(buf, position))) >= 0) {
+                for (int i = 0; i < n; i++) {
+                    int ws = whitespace[bytes[i] & 0xFF];
+                    count += prevWs & (ws ^ 1);
+                    prevWs = ws;
+                }
+                position += n;
+                buf.clear();
+            }
+            return count;
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause());
+        }
+    }
+
+    // Random small files: dirs x filesPerDir, 1-8 KB of words each
+    static void createTree(Path root, int dirs, int filesPerDir) throws IOException {
+        String[] vocabulary = { "the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog" };
+        Random random = new Random(3);
+        for (int d = 0; d < dirs; d++) {
+            Path dir = Files.createDirectories(root.resolve("d" + (d % 10)).resolve("sub" + d));
+            for (int f = 0; f < filesPerDir; f++) {
+                StringBuilder text = new StringBuilder();
+                int target = 1024 + random.nextInt(7 * 1024);
+                while (text.length() < target) {
+                    text.append(vocabulary[random.nextInt(vocabulary.length)]).append(random.nextInt(8) == 0 ? '\n' : ' ');
+                }
+                Files.writeString(dir.resolve("f" + f + ".txt"), text);
+            }
+        }
+    }
+
+    static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) return;
+        try (var paths = Files.walk(root)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) Files.delete(p);
+        }
+    }
+
+    // usage: java TreeProcessor [directory]   (no directory : generates 20,000 small files)
+    public static void main(String[] args) throws Exception {
+        boolean generated = args.length == 0;
+        Path work = Files.createTempDirectory("tree-processor");
+        Path source = generated ? work.resolve("source") : Path.of(args[0]);
+        Path target = work.resolve("copy");
+        try {
+            if (generated) createTree(source, 200, 100);
+
+            // the W6_T1_P2 / W6_T1_P3 way: one file after another on the calling thread
+            long start = System.nanoTime();
+            long sequentialWords = 0;
+            try (var paths = Files.walk(source)) {
+                for (Path p : paths.filter(Files::isRegularFile).toList()) {
+                    sequentialWords += MappedWordCounter.countWordsWithLines(p);
+                }
+            }
+            System.out.printf("sequential count          : %,d words in %.1f ms%n",
+                    sequentialWords, (System.nanoTime() - start) / 1e6);
+
+            for (int concurrency : new int[] { 1, 16, DEFAULT_CONCURRENCY }) {
+                deleteTree(target);
+                Result copy = copyTree(source, target, concurrency);
+                Result count = countWords(source, concurrency);
+                System.out.printf("concurrency %3d copy      : %s%n", concurrency, copy);
+                System.out.printf("concurrency %3d count     : %s%n", concurrency, count);
+            }
+
+            Result check = countWords(target);
+            System.out.printf("copy has the same words   : %b%n", check.words() == sequentialWords);
+        } finally {
+            if (generated) deleteTree(source);
+            deleteTree(target);
+            Files.deleteIfExists(work);
+        }
+    }
+}
@@ -8,12 +8,16 @@ public class W5_T1_P3 {
         try(BufferedReader reader = new BufferedReader(new FileReader(filePath))){
             String line;
 
+            // buffered, written in batches by a background thread instead of one syscall per line
             while( (line = reader.readLine())!=null){
-                System.out.println(line);
+                AsyncConsole.println(line);
             }
+            AsyncConsole.flush();
         } catch (FileNotFoundException e) {
+            AsyncConsole.flush(); // lines read so far go out before the stack trace
             e.printStackTrace();
         } catch (IOException e) {
+            AsyncConsole.flush();
             e.printStackTrace();
         }
     }
@@ -1,3 +1,4 @@
+import java.time.Duration;
 import java.util.concurrent.*;
 import java.util.*;
 import java.util.stream.*;
@@ -28,32 +29,35 @@ class ArraySumTask implements Callable<Long> {
 
 public class W5_T2_P1 {
 
-    public static void main(String[] args) throws InterruptedException, ExecutionException {
+    public static void main(String[] args) throws InterruptedException, ExecutionException, TimeoutException {
         int[] arr = new int[100];
 
         for (int i = 0; i < arr.length; i++) {
             arr[i] = i + 1;
         }
 
-        int nThreads = 5;
+        // threads and partition size from the array length and the machine, instead of a fixed 5
+        AdaptivePartitioner.Plan plan = AdaptivePartitioner.plan(arr.length);
+        int nThreads = plan.parallelism();
 
-        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        // instrumented fixed pool : records queue wait / run time of each partition task
+        InstrumentedThreadPool executor = InstrumentedThreadPool.newFixedThreadPool("array-sum", nThreads);
 
-        int paritionSize = arr.length / nThreads;
+        int paritionSize = plan.chunkSize();
 
         // Arrays.stream(arr).forEach(val -> System.out.println(val));
 
-        List<Future<Long>> futureList = new ArrayList<>();
+        List<Callable<Long>> taskList = new ArrayList<>();
 
-        for (int i = 0; i < nThreads; i++) {
+        for (int i = 0; i < plan.chunks(); i++) {
             int start = i * paritionSize;
-            int end = (i == nThreads - 1) ? arr.length - 1 : start + paritionSize - 1;
+            int end = Math.min(arr.length, start + paritionSize) - 1;
 
             // ArraySumTask task = new ArraySumTask(arr,start,end);
-            // Future<Long> future = executor.submit(task);
+            // taskList.add(task);
 
             //more readible
-            Future<Long> future = executor.submit(() -> {
+            taskList.add(() -> {
                 Long sum = 0L;
                 for (int j = start; j <= end; j++) {
                     sum += arr[j];
@@ -62,19 +66,22 @@ public class W5_T2_P1 {
                 return sum;
             });
 
-            futureList.add(future);
-
         }
 
         Long result = 0L;
 
-        for (var future : futureList) {
-            result += future.get();
+        // results arrive in completion order; a failed partition cancels the others
+        try {
+            for (var partial : ScatterGather.gather(executor, taskList, Duration.ofSeconds(5))) {
+                result += partial;
+            }
+        } finally {
+            executor.shutdown(); // also on a timeout or failure, or the workers keep the JVM alive
         }
-
-        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS); // let afterExecute finish before the report
 
         System.out.println("Our final result is : " + result);
+        System.out.println(executor.report());
 
     }
 }
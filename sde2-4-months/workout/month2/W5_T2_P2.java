@@ -6,14 +6,14 @@ import java.util.concurrent.*;
 
 class ProducerConsumer{
 
-    Queue<Integer> buffer;
+    IntArrayDeque buffer; // ints without boxing every produced value
     int CAPACITY;
     int val;
 
     ProducerConsumer(int capacity, int val){
         this.CAPACITY = capacity;
         this.val = val;
-        this.buffer = new LinkedList<>();
+        this.buffer = new IntArrayDeque(capacity);
     }
 
 
@@ -41,7 +41,7 @@ class FactorialTask implements Callable<Long> {
 public class W5_T2_P4 {
     public static void main(String[] args) throws InterruptedException, ExecutionException {
         
-        ExecutorService executor = Executors.newCachedThreadPool();
+        InstrumentedThreadPool executor = InstrumentedThreadPool.newCachedThreadPool("factorial");
 
         List<Future<Long>> futureList = new ArrayList<>();
 
@@ -60,6 +60,9 @@ public class W5_T2_P4 {
             executor.shutdownNow(); // Attempt to stop all actively executing tasks
         }
 
+        // negative inputs show up as failed tasks
+        System.out.println(executor.report());
+
        
 
     }
@@ -48,9 +48,44 @@ public class W6_T1_P3 {
         return count;
     }  
 
+    // Same pipeline on a parallel stream: LineSpliterator splits the mapped file at line breaks,
+    // so every core decodes and splits its own part (Files.lines feeds all cores from one reader)
+    static long countWordsParallel(String filePath){
+
+        try(Stream<String> lines = LineSpliterator.lines(Path.of(filePath))){
+            return lines.parallel()
+                    .flatMap(line->Stream.of(line.trim().split("\\s+")))
+                    .filter(word->!word.isEmpty())
+                    .count();
+
+        }catch(IOException e){
+           System.err.println("Error during word count: " + e.getMessage());
+        }
+
+        return 0;
+    }
+
+    // Occurrences of each word; the counts live in an int array instead of one Long per word
+    static ObjectIntHashMap<String> wordFrequencies(String filePath){
+
+        try(Stream<String> lines = LineSpliterator.lines(Path.of(filePath))){
+            return lines.parallel()
+                    .flatMap(line->Stream.of(line.trim().split("\\s+")))
+                    .filter(word->!word.isEmpty())
+                    .collect(PrimitiveCollectors.groupingByToIntCount(word->word));
+
+        }catch(IOException e){
+           System.err.println("Error during word frequency count: " + e.getMessage());
+        }
+
+        return new ObjectIntHashMap<>();
+    }
+
     public static void main(String[] args) {
         String filePath = "data/input.txt";
         System.out.println(countWords(filePath));
+        System.out.println(countWordsParallel(filePath));
+        System.out.println(wordFrequencies(filePath));
     }
     
 }
@@ -1,28 +1,9 @@
 import java.util.HashMap;
 import java.util.Map;
 import java.io.*;
-
-class Product implements Serializable{
-    String name;
-    int price;
-    
-    Product(String name, int price){
-        this.name = name;
-        this.price = price;
-    }
-
-    @Override
-    public String toString(){
-        StringBuilder sb = new StringBuilder();
-
-        sb.append("{ name = " + this.name + ", price = " + this.price + "}");
-        
-        return sb.toString();
-    }
-
-    
-}
-
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
 
 public class W6_T2_P1 {
     private static final String FILE_NAME = "data/products_map.ser";
@@ -30,12 +11,12 @@ public class W6_T2_P1 {
     public static void main(String[] args) {
 
         
-        Map<String, Product> originalMap = new HashMap<>();
+        Map<String, CatalogProduct> originalMap = new HashMap<>();
 
-        originalMap.put("1" , new Product("Powder",100));
-        originalMap.put("2" , new Product("Oil",47));
-        originalMap.put("3" , new Product("Brush",20));
-        originalMap.put("4" , new Product("Soap",300));
+        originalMap.put("1" , new CatalogProduct("Powder",100));
+        originalMap.put("2" , new CatalogProduct("Oil",47));
+        originalMap.put("3" , new CatalogProduct("Brush",20));
+        originalMap.put("4" , new CatalogProduct("Soap",300));
 
         System.out.println("Original HashMap: " + originalMap);
         
@@ -47,17 +28,51 @@ public class W6_T2_P1 {
         }
 
 
-        Map<String, Product> deserializedMap = null;
+        Map<String, CatalogProduct> deserializedMap = null;
         try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(FILE_NAME))) {
-            deserializedMap = (Map<String, Product>) ois.readObject();
+            deserializedMap = (Map<String, CatalogProduct>) ois.readObject();
             System.out.println("HashMap deserialized from " + FILE_NAME);
             System.out.println("Deserialized HashMap: " + deserializedMap);
         } catch (IOException | ClassNotFoundException e) {
             System.err.println("Deserialization error: " + e.getMessage());
         }
 
+        // Price index kept up to date through the map view; the product name stands in for a category
+        if (deserializedMap != null) {
+            PriceIndex priceIndex = PriceIndex.build(deserializedMap, p -> p.name);
+            Map<String, CatalogProduct> products = priceIndex.indexedView(deserializedMap);
+            products.put("5", new CatalogProduct("Oil", 35));
+            System.out.println("\nProducts priced 30..150: " + priceIndex.between(30, 150)
+                    + " (" + priceIndex.countBetween(30, 150) + "), cheapest Oil: " + priceIndex.cheapest("Oil", 1));
+        }
+
+        // Log-structured mode: each change appends one record instead of rewriting the whole file.
+        // The log goes to a temp dir that is removed afterwards, so reruns start from an empty log.
+        Path logDir = null;
+        try {
+            logDir = Files.createTempDirectory("products_log");
+            try (ProductLog log = ProductLog.open(logDir)) {
+                log.putAll(originalMap);
+                log.put("2", new CatalogProduct("Oil", 52));
+                log.remove("3");
+                System.out.println("\nProduct log in " + logDir + ": " + log.asMap());
+            }
+        } catch (IOException e) {
+            System.err.println("Product log error: " + e.getMessage());
+        } finally {
+            if (logDir != null) deleteTree(logDir);
+        }
+
 
         
     }
+
+    static void deleteTree(Path dir) {
+        try (var walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("Could not remove " + dir + ": " + e.getMessage());
+        }
+    }
     
 }
@@ -12,6 +12,10 @@ public class W7_T1_P2 {
             return null;
         }
 
+        // big lists: split across cores (Selection picks the parallel path by size)
+        if (list.size() >= Selection.PARALLEL_THRESHOLD) {
+            return Selection.max(list).orElse(null);
+        }
     
         T max = list.get(0);
 
@@ -4,7 +4,7 @@ public class W7_T2_P1_P2_P3 {
 
     public static void main(String[] args) {
         List<String> words = Arrays.asList("apple", "banana", "Apricot", "grape", "Avocado");
-        List<Integer> numbers = Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        IntArrayList numbers = IntArrayList.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
 
         List<String> startsWithA = words
                 .stream()
@@ -14,18 +14,18 @@ public class W7_T2_P1_P2_P3 {
 
         System.out.println(startsWithA);
 
+        // IntStream straight from the int[]: nothing to unbox
         OptionalDouble avg = numbers
                 .stream()
-                .mapToInt(Integer::intValue)
                 .average();
 
         System.out.println(avg);
 
-        Integer sumOdd = numbers
+        int sumOdd = numbers
                 .stream()
                 .filter(n->n%2!=0)
-                .reduce(0,Integer::sum);
-                // equivalent to (0, (a,b)->(a+b))
+                .sum();
+                // equivalent to reduce(0, (a,b)->(a+b))
 
         
         System.out.println(sumOdd);
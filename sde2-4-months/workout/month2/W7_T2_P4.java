@@ -49,6 +49,15 @@ public class W7_T2_P4 {
 
 
         System.out.println(groupedByCategory);
+
+        // Same grouping on primitive columns, with the aggregates instead of the lists
+        ProductTable table = ProductTable.fromRows(products, Product::getName, Product::getCategory, Product::getPrice);
+        System.out.println(table.groupByCategory());
+
+        // Per-category counts and totals from the stream, accumulated into primitive maps
+        System.out.println(products.stream().collect(PrimitiveCollectors.groupingByToIntCount(Product::getCategory))
+                + " " + products.stream().collect(PrimitiveCollectors.summingDoubleByKey(Product::getCategory, Product::getPrice))
+                + " " + products.stream().collect(PrimitiveCollectors.partitionCounts(p -> p.getPrice() >= 50)));
     
     }
 }
@@ -1,17 +1,15 @@
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 
 class Graph {
     private int V; // Number of vertices
-    private List<List<Integer>> adj; // Adjacency list
+    private List<IntArrayList> adj; // Adjacency list, neighbours as unboxed ints
 
     public Graph(int V) {
         this.V = V;
         adj = new ArrayList<>(V);
         for (int i = 0; i < V; ++i) {
-            adj.add(new ArrayList<>());
+            adj.add(new IntArrayList());
         }
     }
 
@@ -30,7 +28,9 @@ class Graph {
     private boolean DFSUtil(int src, int dst, boolean[] vis){
         if(src==dst) return true;
         vis[src] = true;
-        for(Integer n : adj.get(src)){
+        IntArrayList neighbours = adj.get(src);
+        for(int k = 0; k < neighbours.size(); k++){
+            int n = neighbours.get(k);
             if(!vis[n]){
                 if(DFSUtil(n,dst,vis)) return true;
             }
@@ -41,20 +41,22 @@ class Graph {
     // BFS traversal
     public boolean findPathBFS(int src, int dst) {
         boolean[] visited = new boolean[V];
-        Queue<Integer> queue = new LinkedList<>();
+        IntArrayDeque queue = new IntArrayDeque(V);
 
         visited[src] = true;
-        queue.add(src);
+        queue.offer(src);
 
         while (queue.size() != 0) {
             int curr = queue.poll();
             if(curr==dst) return true;
             
 
-            for (int neighbor : adj.get(curr)) {
+            IntArrayList neighbours = adj.get(curr);
+            for (int k = 0; k < neighbours.size(); k++) {
+                int neighbor = neighbours.get(k);
                 if (!visited[neighbor]) {
                     visited[neighbor] = true;
-                    queue.add(neighbor);
+                    queue.offer(neighbor);
                 }
             }
         }
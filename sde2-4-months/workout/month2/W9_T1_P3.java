@@ -2,7 +2,7 @@ import java.util.*;
 
 class Graph {
     // Adjacency list representation of the graph
-    List<List<Integer>> adj;
+    List<IntArrayList> adj;
 
     // Number of vertices
     int V;
@@ -12,7 +12,7 @@ class Graph {
         this.V = V;
         adj = new ArrayList<>();
         for (int i = 0; i < V; i++) {
-            adj.add(new ArrayList<>());
+            adj.add(new IntArrayList());
         }
     }
 
@@ -25,7 +25,9 @@ class Graph {
     void dfs(int i, boolean[] vis){
         vis[i] = true;
 
-        for(var n : adj.get(i)){
+        IntArrayList neighbours = adj.get(i);
+        for(int k = 0; k < neighbours.size(); k++){
+            int n = neighbours.get(k);
             if(!vis[n]){
                 dfs(n,vis);
             }
@@ -0,0 +1,444 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Per-word frequencies and the top K words of a (possibly larger than RAM) text file.
+//
+//  - the file is mapped in chunks cut at whitespace, so every chunk holds whole words
+//  - each worker thread claims chunks and counts into its own open-addressing table keyed on
+//    the raw bytes of the word (hash + length + bytes, no String); a word's bytes are copied
+//    into the table's arena only the first time it is seen
+//  - at the end the per-thread tables are merged and a size-K min-heap picks the winners;
+//    only those K words are ever turned into Strings
+//
+// Spill mode: when a thread's table reaches maxDistinct words it is written out to disk,
+// partitioned by hash into PARTITIONS files, and cleared. Every copy of a word lands in the
+// same partition, so each partition can then be reduced on its own with 1/PARTITIONS of the memory.
+public class WordFrequency {
+
+    record WordCount(String word, long count) {}
+
+    static final int PARTITIONS = 64;
+
+    // Open-addressing (linear probing) table: byte slice -> count
+    static final class ByteSliceTable {
+        private int[] hashes;
+        private long[] counts;          // 0 = empty slot
+        private int[] keyOffsets;
+        private int[] keyLengths;
+        private byte[] arena;
+        private ByteBuffer arenaView;
+        private int arenaSize;
+        private int size;
+        private int mask;
+
+        ByteSliceTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+            allocate(capacity);
+            arena = new byte[Math.max(1024, expected * 8)];
+            arenaView = ByteBuffer.wrap(arena);
+        }
+
+        private void allocate(int capacity) {
+            hashes = new int[capacity];
+            counts = new long[capacity];
+            keyOffsets = new int[capacity];
+            keyLengths = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        // Returns true when the word was not in the table yet
+        boolean add(ByteBuffer src, int from, int length, int hash, long delta) {
+            int slot = hash & mask;
+            while (counts[slot] != 0) {
+                if (hashes[slot] == hash && keyLengths[slot] == length
+                        && sameBytes(src, from, keyOffsets[slot], length)) {
+                    counts[slot] += delta;
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            ensureArena(length);
+            for (int i = 0; i < length; i++) {
+                arena[arenaSize + i] = src.get(from + i);
+            }
+            hashes[slot] = hash;
+            counts[slot] = delta;
+            keyOffsets[slot] = arenaSize;
+            keyLengths[slot] = length;
+            arenaSize += length;
+
+            if (++size * 10 > (mask + 1) * 6) { // load factor 0.6
+                grow();
+            }
+            return true;
+        }
+
+        private boolean sameBytes(ByteBuffer src, int from, int keyOffset, int length) {
+            for (int i = 0; i < length; i++) {
+                if (src.get(from + i) != arena[keyOffset + i]) return false;
+            }
+            return true;
+        }
+
+        private void ensureArena(int extra) {
+            if (arenaSize + extra > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + extra));
+                arenaView = ByteBuffer.wrap(arena);
+            }
+        }
+
+        private void grow() {
+            int[] oldHashes = hashes;
+            long[] oldCounts = counts;
+            int[] oldOffsets = keyOffsets;
+            int[] oldLengths = keyLengths;
+            allocate((mask + 1) * 2);
+            for (int i = 0; i < oldCounts.length; i++) {
+                if (oldCounts[i] == 0) continue;
+                int slot = oldHashes[i] & mask;
+                while (counts[slot] != 0) slot = (slot + 1) & mask;
+                hashes[slot] = oldHashes[i];
+                counts[slot] = oldCounts[i];
+                keyOffsets[slot] = oldOffsets[i];
+                keyLengths[slot] = oldLengths[i];
+            }
+        }
+
+        void mergeInto(ByteSliceTable target) {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    target.add(arenaView, keyOffsets[i], keyLengths[i], hashes[i], counts[i]);
+                }
+            }
+        }
+
+        // Feeds every entry to a top-K heap; word bytes are copied only for entries that get in
+        void offerTo(TopK topK) {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0 && topK.accepts(counts[i], arena, keyOffsets[i], keyLengths[i])) {
+                    topK.offer(Arrays.copyOfRange(arena, keyOffsets[i], keyOffsets[i] + keyLengths[i]), counts[i]);
+                }
+            }
+        }
+
+        // Record layout per word: hash, length, bytes, count
+        void writeTo(DataOutputStream[] partitions) throws IOException {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) continue;
+                DataOutputStream out = partitions[hashes[i] >>> 26]; // top 6 bits, the table uses the low ones
+                out.writeInt(hashes[i]);
+                out.writeInt(keyLengths[i]);
+                out.write(arena, keyOffsets[i], keyLengths[i]);
+                out.writeLong(counts[i]);
+            }
+        }
+
+        void clear() {
+            Arrays.fill(counts, 0);
+            size = 0;
+            arenaSize = 0;
+        }
+    }
+
+    // Keeps the K largest counts seen so far in a min-heap. Equal counts are ranked by the word
+    // bytes (unsigned, i.e. code point order), smaller first, so the K-th place never depends on
+    // table iteration order and the in-memory and spill paths pick the same words.
+    static final class TopK {
+        private record Entry(byte[] word, long count) {}
+
+        // heap order: the entry to evict first (lowest count, then largest word) is at the head
+        private static final Comparator<Entry> WORST_FIRST = Comparator.comparingLong(Entry::count)
+                .thenComparing(Entry::word, (a, b) -> Arrays.compareUnsigned(b, a));
+
+        private final int k;
+        private final PriorityQueue<Entry> heap = new PriorityQueue<>(WORST_FIRST);
+
+        TopK(int k) {
+            this.k = k;
+        }
+
+        // whether word[from, from + length) with this count would get into the heap
+        boolean accepts(long count, byte[] word, int from, int length) {
+            if (heap.size() < k) return true;
+            Entry worst = heap.peek();
+            return count > worst.count() || (count == worst.count()
+                    && Arrays.compareUnsigned(word, from, from + length, worst.word(), 0, worst.word().length) < 0);
+        }
+
+        void offer(byte[] word, long count) {
+            heap.offer(new Entry(word, count));
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+
+        List<WordCount> result() {
+            List<Entry> best = new ArrayList<>(heap);
+            best.sort(WORST_FIRST.reversed());
+            List<WordCount> out = new ArrayList<>(best.size());
+            for (Entry e : best) {
+                out.add(new WordCount(new String(e.word(), StandardCharsets.UTF_8), e.count()));
+            }
+            return out;
+        }
+    }
+
+    // Shared spill area, one file per hash partition; nothing touches the disk until the first spill
+    static final class Spill implements Closeable {
+        private Path dir;
+        private DataOutputStream[] partitions;
+        private int spills;
+
+        synchronized void write(ByteSliceTable table) throws IOException {
+            if (partitions == null) {
+                dir = Files.createTempDirectory("word-spill");
+                partitions = new DataOutputStream[PARTITIONS];
+                for (int p = 0; p < PARTITIONS; p++) {
+                    partitions[p] = new DataOutputStream(new BufferedOutputStream(
+                            Files.newOutputStream(partition(p)), 1 << 16));
+                }
+            }
+            table.writeTo(partitions);
+            spills++;
+        }
+
+        synchronized boolean used() {
+            return spills > 0;
+        }
+
+        Path partition(int p) {
+            return dir.resolve("part-" + p);
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (partitions != null) {
+                for (DataOutputStream out : partitions) {
+                    out.close();
+                }
+            }
+        }
+
+        void delete() throws IOException {
+            if (dir == null) return;
+            for (int p = 0; p < PARTITIONS; p++) {
+                Files.deleteIfExists(partition(p));
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    static final long CHUNK_BYTES = 64L << 20;
+
+    static List<WordCount> topK(Path path, int k) throws IOException, InterruptedException {
+        return topK(path, k, 1 << 22, Runtime.getRuntime().availableProcessors());
+    }
+
+    // maxDistinct : distinct words a thread may hold before its table is spilled to disk
+    static List<WordCount> topK(Path path, int k, int maxDistinct, int threads)
+            throws IOException, InterruptedException {
+        if (k < 0 || maxDistinct <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("k must be non-negative, maxDistinct and threads positive: k=" + k
+                    + ", maxDistinct=" + maxDistinct + ", threads=" + threads);
+        }
+        if (k == 0) return List.of();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, CHUNK_BYTES);
+            AtomicInteger nextChunk = new AtomicInteger();
+            Spill spill = new Spill();
+
+            try {
+                List<Callable<ByteSliceTable>> workers = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    workers.add(() -> {
+                        ByteSliceTable table = new ByteSliceTable(1 << 14);
+                        int c;
+                        while ((c = nextChunk.getAndIncrement()) < bounds.length - 1) {
+                            countChunk(channel, bounds[c], bounds[c + 1], table, maxDistinct, spill);
+                        }
+                        return table;
+                    });
+                }
+
+                List<ByteSliceTable> tables = new ArrayList<>();
+                ExecutorService pool = Executors.newFixedThreadPool(threads);
+                try {
+                    for (Future<ByteSliceTable> f : pool.invokeAll(workers)) {
+                        tables.add(f.get());
+                    }
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof IOException io ? io : new IOException(cause);
+                } finally {
+                    pool.shutdownNow();
+                }
+
+                TopK top = new TopK(k);
+                if (!spill.used()) {
+                    // everything fit in memory : merge the per-thread tables
+                    ByteSliceTable merged = tables.get(0);
+                    for (int t = 1; t < tables.size(); t++) {
+                        tables.get(t).mergeInto(merged);
+                    }
+                    merged.offerTo(top);
+                } else {
+                    for (ByteSliceTable table : tables) {
+                        spill.write(table);
+                    }
+                    spill.close();
+                    for (int p = 0; p < PARTITIONS; p++) {
+                        reducePartition(spill.partition(p), top);
+                    }
+                }
+                return top.result();
+            } finally {
+                spill.close();
+                spill.delete();
+            }
+        }
+    }
+
+    // Chunk boundaries moved forward to the next whitespace, so no word is split between chunks
+    static long[] chunkBounds(FileChannel channel, long chunkBytes) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(1 << 12);
+        long next = chunkBytes;
+        while (next < size) {
+            long boundary = size;
+            long position = next;
+            search:
+            while (position < size) {
+                probe.clear();
+                int read = channel.read(probe, position);
+                if (read <= 0) break;
+                for (int i = 0; i < read; i++) {
+                    if (MappedWordCounter.WHITESPACE[probe.get(i) & 0xFF] == 1) {
+                        boundary = position + i + 1;
+                        break search;
+                    }
+                }
+                position += read;
+            }
+            if (boundary >= size) break;
+            bounds.add(boundary);
+            next = boundary + chunkBytes;
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static void countChunk(FileChannel channel, long start, long end, ByteSliceTable table,
+            int maxDistinct, Spill spill) throws IOException {
+        if (end <= start) return;
+        ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        int limit = buf.limit();
+        int i = 0;
+        while (i < limit) {
+            while (i < limit && MappedWordCounter.WHITESPACE[buf.get(i) & 0xFF] == 1) i++;
+            if (i == limit) break;
+            int wordStart = i;
+            int h = 0;
+            byte b;
+            while (i < limit && MappedWordCounter.WHITESPACE[(b = buf.get(i)) & 0xFF] == 0) {
+                h = 31 * h + b;
+                i++;
+            }
+            if (table.add(buf, wordStart, i - wordStart, mix(h), 1) && table.size() >= maxDistinct) {
+                spill.write(table);
+                table.clear();
+            }
+        }
+    }
+
+    private static void reducePartition(Path file, TopK top) throws IOException {
+        ByteSliceTable table = new ByteSliceTable(1 << 14);
+        byte[] word = new byte[64];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                int hash;
+                try {
+                    hash = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                int length = in.readInt();
+                if (length > word.length) word = new byte[Math.max(length, word.length * 2)];
+                in.readFully(word, 0, length);
+                table.add(ByteBuffer.wrap(word), 0, length, hash, in.readLong());
+            }
+        }
+        table.offerTo(top);
+    }
+
+    // murmur3 finalizer : spreads the bits of a weak polynomial hash over the whole int
+    static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    // Skewed vocabulary of ~1M distinct words, so the top K is meaningful and spilling has work to do
+    static Path createSkewedTextFile(Path path, long bytes) throws IOException {
+        Random random = new Random(3);
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            long written = 0;
+            StringBuilder line = new StringBuilder();
+            while (written < bytes) {
+                line.setLength(0);
+                for (int w = 0; w < 12; w++) {
+                    double x = random.nextDouble();
+                    line.append("w").append((int) (x * x * x * 1_000_000)).append(' ');
+                }
+                writer.write(line.toString());
+                writer.newLine();
+                written += line.length() + 1;
+            }
+        }
+        return path;
+    }
+
+    // usage: java WordFrequency [file] [k]   (no file : generates a 128 MB sample)
+    public static void main(String[] args) throws Exception {
+        boolean generated = args.length == 0;
+        Path path = generated
+                ? createSkewedTextFile(Files.createTempFile("words", ".txt"), 128L << 20)
+                : Path.of(args[0]);
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        try {
+            long start = System.nanoTime();
+            List<WordCount> inMemory = topK(path, k);
+            System.out.printf("in-memory : %.1f ms%n", (System.nanoTime() - start) / 1e6);
+
+            // force the spill path with a small per-thread budget
+            start = System.nanoTime();
+            List<WordCount> spilled = topK(path, k, 50_000, threads);
+            System.out.printf("spilling  : %.1f ms, same result: %b%n", (System.nanoTime() - start) / 1e6,
+                    inMemory.equals(spilled));
+
+            inMemory.forEach(wc -> System.out.printf("  %-12s %,d%n", wc.word(), wc.count()));
+        } finally {
+            if (generated) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,286 @@
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Drop-in for Scanner (hello.java) and the BufferedReader + StringTokenizer FastReader of the
+// CP template when the input has millions of numbers.
+//
+// Scanner runs a regex per token; readLine + split/StringTokenizer builds a String per line and per
+// token. This reader pulls 64 KB blocks from the stream (or a memory-mapped file) and parses
+// numbers straight from the bytes: no String, no regex, no allocation per token.
+//
+// Tokens are separated by any byte <= ' ' (space, tab, newline, \r). Numbers must be ASCII.
+public class FastInput implements Closeable {
+
+    static final int BUFFER_BYTES = 1 << 16;
+
+    // exact powers of ten as doubles (10^22 is the last one a double holds exactly)
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    private final InputStream in;
+    private final FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long mappedEnd;
+    private final byte[] buf = new byte[BUFFER_BYTES];
+    private int pos;
+    private int len;
+    private byte[] scratch = new byte[64];
+
+    FastInput(InputStream in) {
+        this.in = in;
+        this.channel = null;
+    }
+
+    private FastInput(FileChannel channel) {
+        this.in = null;
+        this.channel = channel;
+    }
+
+    // Reads a file through 1 GB mappings instead of read() calls
+    static FastInput open(Path path) throws IOException {
+        return new FastInput(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    private boolean fill() {
+        try {
+            pos = 0;
+            if (channel == null) {
+                len = Math.max(in.read(buf, 0, buf.length), 0); // 0 at end: pos == len again on the next read()
+            } else {
+                if (mapped == null || !mapped.hasRemaining()) {
+                    long size = channel.size();
+                    if (mappedEnd >= size) {
+                        len = 0;
+                        return false;
+                    }
+                    long length = Math.min(1L << 30, size - mappedEnd);
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, mappedEnd, length);
+                    mappedEnd += length;
+                }
+                len = Math.min(buf.length, mapped.remaining());
+                mapped.get(buf, 0, len);
+            }
+            return len > 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // -1 at end of input, otherwise 0..255 (a byte >= 0x80 must not come back as a negative int)
+    private int read() {
+        if (pos == len && !fill()) return -1;
+        return buf[pos++] & 0xFF;
+    }
+
+    private int skipBlanks() {
+        int b;
+        while ((b = read()) != -1 && b <= ' ') {}
+        return b;
+    }
+
+    boolean hasNext() {
+        int b = skipBlanks();
+        if (b == -1) return false;
+        pos--; // the token's first byte is still in buf: read() just returned it from there
+        return true;
+    }
+
+    int nextInt() {
+        long v = nextLong();
+        if (v != (int) v) throw new NumberFormatException("Value out of int range: " + v);
+        return (int) v;
+    }
+
+    long nextLong() {
+        int b = skipBlanks();
+        if (b == -1) throw new NoSuchElementException();
+        boolean negative = b == '-';
+        if (negative || b == '+') b = read();
+        if (b < '0' || b > '9') throw new NumberFormatException("Not a number at byte '" + (char) b + "'");
+        // accumulate negatively: Long.MIN_VALUE has no positive counterpart
+        long result = 0;
+        while (b >= '0' && b <= '9') {
+            int digit = b - '0';
+            if (result < (Long.MIN_VALUE + digit) / 10) throw new NumberFormatException("Value out of long range");
+            result = result * 10 - digit;
+            b = read();
+        }
+        if (b > ' ') throw new NumberFormatException("Not a number at byte '" + (char) b + "'");
+        if (negative) return result;
+        if (result == Long.MIN_VALUE) throw new NumberFormatException("Value out of long range");
+        return -result;
+    }
+
+    // Exact for up to 15 significant digits and 22 fraction digits (one correctly rounded division);
+    // anything else -- exponents, long mantissas, NaN -- goes through Double.parseDouble
+    double nextDouble() {
+        int n = nextToken();
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = -1;
+        int i = 0;
+        boolean negative = scratch[0] == '-';
+        if (negative || scratch[0] == '+') i++;
+        boolean simple = i < n;
+        for (; i < n && simple; i++) {
+            int b = scratch[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                if (++digits > 15) simple = false;
+                if (fraction >= 0) fraction++;
+            } else if (b == '.' && fraction < 0) {
+                fraction = 0;
+            } else {
+                simple = false;
+            }
+        }
+        if (!simple || digits == 0 || fraction > 22) {
+            return Double.parseDouble(new String(scratch, 0, n, StandardCharsets.ISO_8859_1));
+        }
+        double value = fraction > 0 ? mantissa / POWERS_OF_TEN[fraction] : mantissa;
+        return negative ? -value : value;
+    }
+
+    // Copies the next token into scratch and returns its length
+    private int nextToken() {
+        int b = skipBlanks();
+        if (b == -1) throw new NoSuchElementException();
+        int n = 0;
+        while (b > ' ') {
+            if (n == scratch.length) scratch = Arrays.copyOf(scratch, n * 2);
+            scratch[n++] = (byte) b;
+            b = read();
+        }
+        return n;
+    }
+
+    // Next token as a String (one allocation: the String itself)
+    String next() {
+        int n = nextToken();
+        return new String(scratch, 0, n, StandardCharsets.UTF_8);
+    }
+
+    // Next token into dst without allocating; returns its length, or -1 at end of input.
+    // A token longer than dst is cut off (the rest is skipped).
+    int nextWord(byte[] dst) {
+        int b = skipBlanks();
+        if (b == -1) return -1;
+        int n = 0;
+        while (b > ' ') {
+            if (n < dst.length) dst[n] = (byte) b;
+            n++;
+            b = read();
+        }
+        return Math.min(n, dst.length);
+    }
+
+    // Rest of the current line without the line break; null at end of input
+    String nextLine() {
+        int b = read();
+        if (b == -1) return null;
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        while (b != -1 && b != '\n') {
+            if (b != '\r') line.write(b);
+            b = read();
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    int[] readIntArray(int n) {
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++) a[i] = nextInt();
+        return a;
+    }
+
+    long[] readLongArray(int n) {
+        long[] a = new long[n];
+        for (int i = 0; i < n; i++) a[i] = nextLong();
+        return a;
+    }
+
+    double[] readDoubleArray(int n) {
+        double[] a = new double[n];
+        for (int i = 0; i < n; i++) a[i] = nextDouble();
+        return a;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) in.close();
+        if (channel != null) channel.close();
+    }
+
+    // usage: java FastInput [count]
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        Path file = Files.createTempFile("numbers", ".txt");
+        try {
+            Random random = new Random(11);
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+                out.println(n);
+                for (int i = 0; i < n; i++) {
+                    out.print(random.nextInt() >> random.nextInt(31));
+                    out.print(i % 10 == 9 ? '\n' : ' ');
+                }
+                out.println();
+                out.println("3.25 -0.001 1e300 12345678901234567.5");
+            }
+
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                long scanner = 0;
+                try (Scanner sc = new Scanner(new BufferedInputStream(Files.newInputStream(file)))) {
+                    int count = sc.nextInt();
+                    // Scanner is so slow that only a tenth of the input is read, then scaled up
+                    for (int i = 0; i < count / 10; i++) scanner += sc.nextInt();
+                }
+                long scannerNanos = (System.nanoTime() - start) * 10;
+
+                start = System.nanoTime();
+                long split = 0;
+                try (BufferedReader br = Files.newBufferedReader(file)) {
+                    int count = Integer.parseInt(br.readLine().trim());
+                    int read = 0;
+                    while (read < count) {
+                        for (String token : br.readLine().trim().split("\\s+")) {
+                            split += Integer.parseInt(token);
+                            read++;
+                        }
+                    }
+                }
+                long splitNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                long stream = 0;
+                try (FastInput in = new FastInput(Files.newInputStream(file))) {
+                    for (int v : in.readIntArray(in.nextInt())) stream += v;
+                }
+                long streamNanos = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                long mapped = 0;
+                double[] doubles;
+                try (FastInput in = open(file)) {
+                    for (int v : in.readIntArray(in.nextInt())) mapped += v;
+                    doubles = in.readDoubleArray(4);
+                }
+                long mappedNanos = System.nanoTime() - start;
+
+                System.out.printf("%,d ints | Scanner ~%.0f ms | BufferedReader+split %.0f ms | "
+                        + "FastInput stream %.0f ms | FastInput mapped %.0f ms | same sum %b%n",
+                        n, scannerNanos / 1e6, splitNanos / 1e6, streamNanos / 1e6, mappedNanos / 1e6,
+                        split == stream && stream == mapped);
+                if (round == 0) System.out.println("doubles: " + Arrays.toString(doubles) + " (Scanner partial sum " + scanner + ")");
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
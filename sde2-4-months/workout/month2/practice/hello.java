@@ -1,13 +1,11 @@
-import java.util.*;
+import java.io.*;
 
 public class hello {
-    public static void main(String[] args) {
-        Scanner sc = new Scanner(System.in);
-
-        int x = sc.nextInt();
-        System.out.println(x);
-
-        sc.close();
+    public static void main(String[] args) throws IOException {
+        try (FastInput in = new FastInput(System.in)) {
+            int x = in.nextInt();
+            System.out.println(x);
+        }
 
         System.out.println("hello rahega");
     }